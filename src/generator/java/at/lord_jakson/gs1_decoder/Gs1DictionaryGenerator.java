@@ -0,0 +1,199 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public class Gs1DictionaryGenerator
+{
+    // Build step (generateDictionary task): reads the AI table and writes Gs1DataFieldsTable.java with the
+    // dictionary as constant arrays, including the compiled validators, AI codes and title ordinals, and
+    // switches that resolve AIs and titles to ordinals, so Gs1DataFields does no parsing or hashing at
+    // class init. Usage: Gs1DictionaryGenerator <table file> <output source dir>
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2)
+        {
+            throw new IllegalArgumentException("Usage: Gs1DictionaryGenerator <table file> <output source dir>");
+        }
+
+        Gs1DictionaryTable table;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8)))
+        {
+            table = Gs1DictionaryTable.parse(reader);
+        }
+
+        StringBuilder out = new StringBuilder();
+        out.append("package at.lord_jakson.gs1_decoder;\n\n");
+        out.append("// Generated by the generateDictionary build task from ").append(new File(args[0]).getName()).append(", do not edit.\n");
+        out.append("final class Gs1DataFieldsTable\n{\n");
+        out.append("    private Gs1DataFieldsTable()\n    {\n    }\n\n");
+
+        out.append("    // groups of the AI trie, parents first\n");
+        out.append("    static final String[] LIST_PATH = {");
+        for (int i = 0; i < table.listPaths.length; i++)
+        {
+            separator(out, i, 8);
+            string(out, table.listPaths[i]);
+        }
+        out.append("\n    };\n");
+        out.append("    static final int[] LIST_DATA_LEN = {");
+        for (int i = 0; i < table.listPaths.length; i++)
+        {
+            separator(out, i, 8);
+            out.append(table.listDataLens[i]);
+        }
+        out.append("\n    };\n");
+        out.append("    static final boolean[] LIST_VAR_DEC = {");
+        for (int i = 0; i < table.listPaths.length; i++)
+        {
+            separator(out, i, 8);
+            out.append(table.listVarDecs[i]);
+        }
+        out.append("\n    };\n\n");
+
+        out.append("    // items in ordinal order\n");
+        out.append("    static final String[] AI = {");
+        for (int i = 0; i < table.size(); i++)
+        {
+            separator(out, i, 8);
+            string(out, table.applicationIdentifiers[i]);
+        }
+        out.append("\n    };\n");
+        out.append("    static final String[] TITLE = {");
+        for (int i = 0; i < table.size(); i++)
+        {
+            separator(out, i, 8);
+            string(out, table.titles[i]);
+        }
+        out.append("\n    };\n");
+        out.append("    static final int[] DATA_LEN = {");
+        for (int i = 0; i < table.size(); i++)
+        {
+            separator(out, i, 8);
+            out.append(table.dataLens[i]);
+        }
+        out.append("\n    };\n");
+        out.append("    static final int[] AI_CODE = {");
+        for (int i = 0; i < table.size(); i++)
+        {
+            separator(out, i, 8);
+            out.append(Integer.parseInt(table.applicationIdentifiers[i]));
+        }
+        out.append("\n    };\n");
+
+        // titles are numbered in order of their first item, like Field_ListRoot does for loaded tables
+        Map<String, Integer> title_ordinals = new LinkedHashMap<>();
+        out.append("    static final int[] TITLE_ORDINAL = {");
+        for (int i = 0; i < table.size(); i++)
+        {
+            separator(out, i, 16);
+            Integer title_ordinal = title_ordinals.get(table.titles[i]);
+            if (title_ordinal == null)
+            {
+                title_ordinal = title_ordinals.size();
+                title_ordinals.put(table.titles[i], title_ordinal);
+            }
+            out.append(title_ordinal);
+        }
+        out.append("\n    };\n");
+        out.append("    static final int TITLE_COUNT = ").append(title_ordinals.size()).append(";\n");
+        out.append("    static final String[] REG_EX = {");
+        for (int i = 0; i < table.size(); i++)
+        {
+            separator(out, i, 1);
+            string(out, table.regExs[i]);
+        }
+        out.append("\n    };\n");
+
+        out.append("    // Gs1DataValidator descriptors, null for regexes that need the fallback\n");
+        out.append("    static final long[][] VALIDATOR = {");
+        for (int i = 0; i < table.size(); i++)
+        {
+            separator(out, i, 1);
+            // checks the fallback regexes at build time, they are only compiled on first use at runtime
+            Pattern.compile(table.regExs[i]);
+            long[] descriptor = Gs1DataValidator.compile(table.applicationIdentifiers[i], table.regExs[i], table.varDecs[i]).getDescriptor();
+            if (descriptor == null)
+            {
+                out.append("null");
+                continue;
+            }
+            out.append('{');
+            for (int j = 0; j < descriptor.length; j++)
+            {
+                out.append(j > 0 ? ", " : "").append("0x").append(Long.toHexString(descriptor[j])).append('L');
+            }
+            out.append('}');
+        }
+        out.append("\n    };\n\n");
+
+        out.append("    // ordinal of the item with the AI key (Gs1DictionaryTable.aiKey), -1 if there is none\n");
+        out.append("    static int ordinal(int aiKey)\n    {\n        switch (aiKey)\n        {\n");
+        for (int i = 0; i < table.size(); i++)
+        {
+            String ai = table.applicationIdentifiers[i];
+            out.append("            case ").append(Gs1DictionaryTable.aiKey(ai.length(), Integer.parseInt(ai))).append(": // ").append(ai).append('\n');
+            out.append("                return ").append(i).append(";\n");
+        }
+        out.append("        }\n        return -1;\n    }\n\n");
+
+        out.append("    // -1 for unknown titles\n");
+        out.append("    static int titleOrdinal(String title)\n    {\n        switch (title)\n        {\n");
+        for (Map.Entry<String, Integer> entry : title_ordinals.entrySet())
+        {
+            out.append("            case ");
+            string(out, entry.getKey());
+            out.append(":\n                return ").append(entry.getValue()).append(";\n");
+        }
+        out.append("        }\n        return -1;\n    }\n");
+        out.append("}\n");
+
+        File target = new File(args[1], "at/lord_jakson/gs1_decoder/Gs1DataFieldsTable.java");
+        if (!target.getParentFile().isDirectory() && !target.getParentFile().mkdirs())
+        {
+            throw new IOException("Cannot create " + target.getParent());
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(target), StandardCharsets.US_ASCII))
+        {
+            writer.write(out.toString());
+        }
+    }
+
+    private static void separator(StringBuilder out, int index, int perLine)
+    {
+        out.append(index == 0 ? "\n        " : index % perLine == 0 ? ",\n        " : ", ");
+    }
+
+    private static void string(StringBuilder out, String value)
+    {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char temp = value.charAt(i);
+            if (temp == '"' || temp == '\\')
+            {
+                out.append('\\').append(temp);
+            }
+            else if (temp < 0x20 || temp >= 0x7F)
+            {
+                throw new IllegalArgumentException("Only printable ASCII is supported: " + value);
+            }
+            else
+            {
+                out.append(temp);
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,82 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class Gs1BatchBenchmark
+{
+    // one op decodes the whole batch, compare Gs1BatchDecoder at several pool sizes with the sequential loop
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    @Param({"100000"})
+    public int batchSize;
+
+    private List<String> codes;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup()
+    {
+        Gs1BenchmarkCodes.Gs1LabelMix[] mixes = Gs1BenchmarkCodes.Gs1LabelMix.values();
+        Gs1Decoder.Gs1Decoder_CodeType[] types = {Gs1Decoder.Gs1Decoder_CodeType.GS, Gs1Decoder.Gs1Decoder_CodeType.BRACKET_ROUND};
+        this.codes = new ArrayList<>(this.batchSize);
+        for (int i = 0; i < this.batchSize; i++)
+        {
+            this.codes.add(Gs1BenchmarkCodes.build(types[i % types.length], mixes[i % mixes.length].fields));
+        }
+        this.pool = new ForkJoinPool(this.threads);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        this.pool.shutdown();
+    }
+
+    @Benchmark
+    public int sequential()
+    {
+        int decoded = 0;
+        for (String code : this.codes)
+        {
+            try
+            {
+                if (new Gs1Decoder().decodeCode(code) != null)
+                {
+                    decoded += 1;
+                }
+            }
+            catch (Gs1Decoder.Gs1Exception e)
+            {
+                decoded -= 1;
+            }
+        }
+        return decoded;
+    }
+
+    @Benchmark
+    public List<Gs1BatchDecoder.Gs1BatchItem> forkJoin()
+    {
+        return Gs1BatchDecoder.decodeAll(this.codes, this.pool);
+    }
+}
@@ -0,0 +1,67 @@
+package at.lord_jakson.gs1_decoder;
+
+public class Gs1BenchmarkCodes
+{
+    // Labels used by the benchmarks, as AI/data pairs. The AIs of fixed-length fields are not followed
+    // by a separator in the GS and % forms, just like on a printed label. Digital Link URIs carry the
+    // first field in the path.
+
+    public enum Gs1LabelMix
+    {
+        FIXED(new String[][]{{"00", "340123450000000016"}, {"01", "04012345678901"}, {"17", "251231"}}),
+        VARIABLE(new String[][]{{"01", "04012345678901"}, {"10", "LOT-2024-0815A"}, {"21", "SN0000012345678"}, {"240", "ADDITIONAL-ID-42"}}),
+        VAR_DECIMAL(new String[][]{{"01", "04012345678901"}, {"3103", "001234"}, {"3202", "004711"}, {"3922", "1299"}}),
+        INVALID(new String[][]{{"01", "04012345678901"}, {"10", "LOT42"}, {"19", "UNKNOWN"}});
+
+        final String[][] fields;
+
+        Gs1LabelMix(String[][] fields)
+        {
+            this.fields = fields;
+        }
+    }
+
+    public static String build(Gs1Decoder.Gs1Decoder_CodeType codeType, String[][] fields)
+    {
+        StringBuilder strBuilder = new StringBuilder();
+        if (codeType == Gs1Decoder.Gs1Decoder_CodeType.DIGITAL_LINK)
+        {
+            // the first field is the primary key in the path, the others are query parameters
+            strBuilder.append("https://id.gs1.org/").append(fields[0][0]).append('/').append(fields[0][1]);
+            for (int i = 1; i < fields.length; i++)
+            {
+                strBuilder.append(i == 1 ? '?' : '&').append(fields[i][0]).append('=').append(fields[i][1]);
+            }
+            return strBuilder.toString();
+        }
+        char separator = codeType == Gs1Decoder.Gs1Decoder_CodeType.PC ? Gs1Decoder.PC : Gs1Decoder.GS;
+        if (codeType == Gs1Decoder.Gs1Decoder_CodeType.GS || codeType == Gs1Decoder.Gs1Decoder_CodeType.PC)
+        {
+            strBuilder.append(separator);
+        }
+
+        for (int i = 0; i < fields.length; i++)
+        {
+            String ai = fields[i][0];
+            String data = fields[i][1];
+            switch (codeType)
+            {
+                case BRACKET_ROUND:
+                    strBuilder.append('(').append(ai).append(')').append(data);
+                    break;
+                case BRACKET_SQUARE:
+                    strBuilder.append('[').append(ai).append(']').append(data);
+                    break;
+                default:
+                    strBuilder.append(ai).append(data);
+                    Gs1DataFields.Field_Item item = Gs1DataFields.root.lookup(ai.getBytes(), 0, ai.length());
+                    if (i < fields.length - 1 && (item == null || item.getDataLen() <= 0))
+                    {
+                        strBuilder.append(separator);
+                    }
+                    break;
+            }
+        }
+        return strBuilder.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Gs1BinaryCodecBenchmark
+{
+    // Binary codec against the text form (Gs1Result.toString, one "ai:title:data" line per element)
+    // for a batch of decoded labels. The setup prints the bytes per record of both forms.
+
+    private static final int RECORDS = 1000;
+
+    @Param({"FIXED", "VARIABLE", "VAR_DECIMAL"})
+    public Gs1BenchmarkCodes.Gs1LabelMix mix;
+
+    private Gs1Result[] results;
+    private ByteArrayOutputStream out;
+    private byte[] binary;
+    private byte[] text;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        this.results = new Gs1Result[RECORDS];
+        for (int i = 0; i < RECORDS; i++)
+        {
+            this.results[i] = Gs1Decoder.decode(Gs1BenchmarkCodes.build(Gs1Decoder.Gs1Decoder_CodeType.GS, this.mix.fields));
+        }
+        this.out = new ByteArrayOutputStream(64 * 1024);
+        writeBinary();
+        this.binary = this.out.toByteArray();
+        writeText();
+        this.text = this.out.toByteArray();
+        System.out.printf("%n%s: binary %.1f bytes/record, text %.1f bytes/record%n", this.mix,
+                          (this.binary.length - 9) / (double) RECORDS, this.text.length / (double) RECORDS);
+    }
+
+    @Benchmark
+    public int writeBinary() throws IOException
+    {
+        this.out.reset();
+        Gs1BinaryCodec.Gs1BinaryWriter writer = new Gs1BinaryCodec.Gs1BinaryWriter(this.out);
+        for (Gs1Result result : this.results)
+        {
+            writer.write(result);
+        }
+        return this.out.size();
+    }
+
+    @Benchmark
+    public int writeText() throws IOException
+    {
+        this.out.reset();
+        for (Gs1Result result : this.results)
+        {
+            this.out.write(result.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        return this.out.size();
+    }
+
+    @Benchmark
+    public long readBinary()
+    {
+        Gs1BinaryCodec.Gs1BinaryReader reader = new Gs1BinaryCodec.Gs1BinaryReader(ByteBuffer.wrap(this.binary));
+        long sum = 0;
+        while (reader.next())
+        {
+            for (int i = 0; i < reader.size(); i++)
+            {
+                sum += reader.getField(i).aiCode + (reader.isPacked(i) ? reader.getLong(i) : 0);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long readText()
+    {
+        long sum = 0;
+        for (String line : new String(this.text, StandardCharsets.US_ASCII).split("\n"))
+        {
+            String[] parts = line.split(":", 3);
+            sum += parts[0].length() + parts[2].length();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int readBinaryResults()
+    {
+        Gs1BinaryCodec.Gs1BinaryReader reader = new Gs1BinaryCodec.Gs1BinaryReader(ByteBuffer.wrap(this.binary));
+        int count = 0;
+        while (reader.next())
+        {
+            count += reader.toResult().size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,112 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Gs1DecoderBenchmark
+{
+    @Param({"GS", "PC", "BRACKET_ROUND", "BRACKET_SQUARE", "DIGITAL_LINK"})
+    public Gs1Decoder.Gs1Decoder_CodeType codeType;
+
+    @Param({"FIXED", "VARIABLE", "VAR_DECIMAL", "INVALID"})
+    public Gs1BenchmarkCodes.Gs1LabelMix mix;
+
+    private String code;
+    private byte[] codeBytes;
+    private Gs1Decoder reused;
+    private Gs1Decoder selected;
+
+    @Setup
+    public void setup()
+    {
+        this.code = Gs1BenchmarkCodes.build(this.codeType, this.mix.fields);
+        this.codeBytes = this.code.getBytes(StandardCharsets.US_ASCII);
+        this.reused = new Gs1Decoder();
+        this.selected = new Gs1Decoder().setSelection(Gs1AiSet.of("01", "17"));
+    }
+
+    @Benchmark
+    public Object decodeCode()
+    {
+        // the original API: a new decoder and Gs1Items per scan
+        try
+        {
+            Gs1Decoder decoder = new Gs1Decoder().decodeCode(this.code);
+            return decoder != null ? decoder.getItem(decoder.size() - 1) : null;
+        }
+        catch (Gs1Decoder.Gs1Exception e)
+        {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public int decodeInto()
+    {
+        try
+        {
+            return this.reused.decodeInto(this.codeBytes, 0, this.codeBytes.length).size();
+        }
+        catch (Gs1Decoder.Gs1Exception e)
+        {
+            return -e.getCode();
+        }
+    }
+
+    @Benchmark
+    public int decodeSelected()
+    {
+        // only 01 and 17 are validated and collected
+        return this.selected.tryDecodeInto(this.codeBytes, 0, this.codeBytes.length);
+    }
+
+    @Benchmark
+    public boolean decodeVisitor(final Blackhole blackhole)
+    {
+        try
+        {
+            return Gs1Decoder.decode(this.codeBytes, 0, this.codeBytes.length, new Gs1Visitor()
+            {
+                @Override
+                public boolean visit(Gs1Element element)
+                {
+                    blackhole.consume(element.getAiCode());
+                    return true;
+                }
+            });
+        }
+        catch (Gs1Decoder.Gs1Exception e)
+        {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public Object decodeResult()
+    {
+        try
+        {
+            return Gs1Decoder.decode(this.codeBytes, 0, this.codeBytes.length);
+        }
+        catch (Gs1Decoder.Gs1Exception e)
+        {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Gs1DictionaryBenchmark
+{
+    // Runtime dictionary loading: parsing the AI table text, compiling it into the trie and validators
+    // (loadDictionary), and a swap followed by the first decode on the new dictionary, which rebinds the
+    // decoder. The table is the one the built-in dictionary is generated from (run from the project dir).
+
+    private static final String CODE = "(01)09506000134352(17)201225(3103)001234(10)ABC";
+
+    private String table;
+    private Gs1DataFields.Field_ListRoot[] dictionaries;
+    private int swaps;
+    private Gs1Decoder decoder;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        this.table = new String(Files.readAllBytes(Paths.get("src/main/dictionary/gs1-ai-table.txt")), StandardCharsets.UTF_8);
+        this.dictionaries = new Gs1DataFields.Field_ListRoot[]{Gs1DataFields.root, Gs1DataFields.loadDictionary(new StringReader(this.table))};
+        this.decoder = new Gs1Decoder();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        Gs1DataFields.setDictionary(Gs1DataFields.root);
+    }
+
+    @Benchmark
+    public int parseTable() throws IOException
+    {
+        return Gs1DictionaryTable.parse(new BufferedReader(new StringReader(this.table))).size();
+    }
+
+    @Benchmark
+    public int loadDictionary() throws IOException
+    {
+        return Gs1DataFields.loadDictionary(new StringReader(this.table)).getItemCount();
+    }
+
+    @Benchmark
+    public int swapAndDecode()
+    {
+        Gs1DataFields.setDictionary(this.dictionaries[this.swaps++ & 1]);
+        return this.decoder.tryDecodeInto(CODE);
+    }
+
+    @Benchmark
+    public int decode()
+    {
+        return this.decoder.tryDecodeInto(CODE);
+    }
+}
@@ -0,0 +1,131 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Gs1FacadeBenchmark
+{
+    // Throughput of the static Gs1Decoder.decode facades at 1, 4 and 16 threads. All threads share the
+    // codes and the root dictionary, every thread walks them from its own position. With linear scaling
+    // the ops/us of the 4 and 16 thread runs are 4 and 16 times the single thread one (up to the core count).
+
+    @State(Scope.Benchmark)
+    public static class Codes
+    {
+        String[] strings;
+        byte[][] bytes;
+
+        @Setup
+        public void setup()
+        {
+            Gs1BenchmarkCodes.Gs1LabelMix[] mixes = Gs1BenchmarkCodes.Gs1LabelMix.values();
+            Gs1Decoder.Gs1Decoder_CodeType[] types = Gs1Decoder.Gs1Decoder_CodeType.values();
+            this.strings = new String[64];
+            this.bytes = new byte[64][];
+            int count = 0;
+            for (int i = 0; count < this.strings.length; i++)
+            {
+                Gs1Decoder.Gs1Decoder_CodeType type = types[i % types.length];
+                if (type == Gs1Decoder.Gs1Decoder_CodeType.NONE)
+                {
+                    continue;
+                }
+                this.strings[count] = Gs1BenchmarkCodes.build(type, mixes[i % mixes.length].fields);
+                this.bytes[count] = this.strings[count].getBytes(StandardCharsets.US_ASCII);
+                count += 1;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Position
+    {
+        int next;
+
+        int advance(int count)
+        {
+            this.next = (this.next + 1) % count;
+            return this.next;
+        }
+    }
+
+    private static Object decode(String code)
+    {
+        try
+        {
+            return Gs1Decoder.decode(code);
+        }
+        catch (Gs1Decoder.Gs1Exception e)
+        {
+            return e;
+        }
+    }
+
+    private static Object decode(byte[] code)
+    {
+        try
+        {
+            return Gs1Decoder.decode(code, 0, code.length);
+        }
+        catch (Gs1Decoder.Gs1Exception e)
+        {
+            return e;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object decodeString1(Codes codes, Position position)
+    {
+        return decode(codes.strings[position.advance(codes.strings.length)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object decodeString4(Codes codes, Position position)
+    {
+        return decode(codes.strings[position.advance(codes.strings.length)]);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object decodeString16(Codes codes, Position position)
+    {
+        return decode(codes.strings[position.advance(codes.strings.length)]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object decodeBytes1(Codes codes, Position position)
+    {
+        return decode(codes.bytes[position.advance(codes.bytes.length)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object decodeBytes4(Codes codes, Position position)
+    {
+        return decode(codes.bytes[position.advance(codes.bytes.length)]);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object decodeBytes16(Codes codes, Position position)
+    {
+        return decode(codes.bytes[position.advance(codes.bytes.length)]);
+    }
+}
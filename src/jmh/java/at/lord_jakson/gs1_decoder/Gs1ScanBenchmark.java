@@ -0,0 +1,152 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Gs1ScanBenchmark
+{
+    // Separator search of Gs1DataBuffer (8 bytes at a time) against the byte by byte loop, and with the
+    // GS1 char check in the same pass against the byte loop followed by the class check the validator
+    // does per byte. dataLen is the length of the variable field in front of the separator, 90 is the
+    // longest GS1 field (8200 URL). The line end search of the file decoder (8 bytes per step) runs
+    // against the byte by byte loop on a direct buffer with lines of the same length.
+
+    private static final String CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-./:";
+    private static final int LINES = 256;
+
+    @Param({"8", "20", "90"})
+    public int dataLen;
+
+    private byte[] data;
+    private Gs1DataBuffer buffer;
+    private byte[] code;
+    private Gs1Decoder decoder;
+    private ByteBuffer lines;
+
+    @Setup
+    public void setup()
+    {
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < this.dataLen; i++)
+        {
+            field.append(CHARS.charAt(i * 7 % CHARS.length()));
+        }
+        this.data = (field + "\u001d").getBytes(StandardCharsets.US_ASCII);
+        this.buffer = new Gs1DataBuffer(this.data, 0, this.data.length);
+
+        // three variable fields of the length, 10 and 21 take 20 chars, 8200 up to 70
+        String url = field.substring(0, Math.min(this.dataLen, 70));
+        String lot = field.substring(0, Math.min(this.dataLen, 20));
+        String code = "\u001d0109506000134352" + "8200" + url + "\u001d10" + lot + "\u001d21" + lot;
+        this.code = code.getBytes(StandardCharsets.US_ASCII);
+        this.decoder = new Gs1Decoder();
+
+        this.lines = ByteBuffer.allocateDirect(LINES * (this.dataLen + 1));
+        for (int i = 0; i < LINES; i++)
+        {
+            this.lines.put(this.data, 0, this.dataLen).put((byte) '\n');
+        }
+    }
+
+    @Benchmark
+    public int search()
+    {
+        this.buffer.seek(0);
+        return this.buffer.readSpanVar(Gs1Decoder.GS);
+    }
+
+    @Benchmark
+    public int searchScalar()
+    {
+        byte[] array = this.data;
+        int pos = 0;
+        while (pos < array.length && array[pos] != Gs1Decoder.GS)
+        {
+            pos += 1;
+        }
+        return pos;
+    }
+
+    @Benchmark
+    public int span()
+    {
+        this.buffer.seek(0);
+        int len = this.buffer.readSpanVar(Gs1Decoder.GS, true);
+        return this.buffer.isSpanGs1Chars() ? len : -len;
+    }
+
+    @Benchmark
+    public int spanTwoPass()
+    {
+        byte[] array = this.data;
+        int pos = 0;
+        while (pos < array.length && array[pos] != Gs1Decoder.GS)
+        {
+            pos += 1;
+        }
+        for (int i = 0; i < pos; i++)
+        {
+            int value = array[i];
+            boolean valid = value >= 0 && (value < 64 ? (Gs1DataValidator.GS1_CHARS_LO >>> value & 1) != 0 : (Gs1DataValidator.GS1_CHARS_HI >>> (value - 64) & 1) != 0);
+            if (!valid)
+            {
+                return -pos;
+            }
+        }
+        return pos;
+    }
+
+    @Benchmark
+    public int decode()
+    {
+        return this.decoder.tryDecodeInto(this.code, 0, this.code.length);
+    }
+
+    @Benchmark
+    public int lineEndsSwar()
+    {
+        int limit = this.lines.capacity();
+        int count = 0;
+        int pos = 0;
+        while (pos < limit)
+        {
+            pos = Gs1DataBuffer.indexOf(this.lines, pos, limit, (byte) '\n') + 1;
+            count += 1;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int lineEndsScalar()
+    {
+        int limit = this.lines.capacity();
+        int count = 0;
+        int pos = 0;
+        while (pos < limit)
+        {
+            while (pos < limit && this.lines.get(pos) != '\n')
+            {
+                pos += 1;
+            }
+            pos += 1;
+            count += 1;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,131 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class Gs1AiSet
+{
+    // Immutable set of dictionary items as bitset over Field_Item.ordinal, used to select the AIs a
+    // decoder materializes. Var-decimal AIs are selected with all decimal digits ("310" and "3103" both select 310x).
+
+    private final Gs1DataFields.Field_ListRoot dictionary;
+    final long[] bits;
+    private final int size;
+    // the same AIs in the last other dictionary asked for, see forDictionary
+    private volatile Gs1AiSet rebound;
+
+    private Gs1AiSet(Gs1DataFields.Field_ListRoot dictionary, long[] bits)
+    {
+        this.dictionary = dictionary;
+        this.bits = bits;
+        int count = 0;
+        for (long word : bits)
+        {
+            count += Long.bitCount(word);
+        }
+        this.size = count;
+    }
+
+    public static Gs1AiSet of(String... applicationIdentifiers)
+    {
+        return of(Gs1DataFields.getDictionary(), applicationIdentifiers);
+    }
+
+    public static Gs1AiSet of(Gs1DataFields.Field_ListRoot dictionary, String... applicationIdentifiers)
+    {
+        long[] bits = new long[(dictionary.getItemCount() + 63) >>> 6];
+        for (String ai : applicationIdentifiers)
+        {
+            Gs1DataFields.Field_Item item = resolve(dictionary, ai);
+            bits[item.ordinal >>> 6] |= 1L << item.ordinal;
+        }
+        return new Gs1AiSet(dictionary, bits);
+    }
+
+    private static Gs1DataFields.Field_Item resolve(Gs1DataFields.Field_ListRoot dictionary, String ai)
+    {
+        Gs1DataFields.Field_Item item = dictionary.lookup(ai);
+        if (item != null)
+        {
+            return item;
+        }
+        for (int i = 0; i < dictionary.getItemCount(); i++)
+        {
+            if (dictionary.getItemByOrdinal(i).applicationIdentifier.equals(ai))
+            {
+                return dictionary.getItemByOrdinal(i);
+            }
+        }
+        throw new IllegalArgumentException("Unknown ApplicationIdentifier '" + ai + "'");
+    }
+
+    public Gs1DataFields.Field_ListRoot getDictionary()
+    {
+        return this.dictionary;
+    }
+
+    // The set with the same AIs in another dictionary (after Gs1DataFields.setDictionary), AIs the other
+    // dictionary does not have are dropped. The last one is kept, so decoders can call this per code.
+    public Gs1AiSet forDictionary(Gs1DataFields.Field_ListRoot other)
+    {
+        if (other == this.dictionary)
+        {
+            return this;
+        }
+        Gs1AiSet result = this.rebound;
+        if (result == null || result.dictionary != other)
+        {
+            long[] temp_bits = new long[(other.getItemCount() + 63) >>> 6];
+            for (Gs1DataFields.Field_Item item : getItems())
+            {
+                Gs1DataFields.Field_Item other_item = other.find(item.applicationIdentifier);
+                if (other_item != null)
+                {
+                    temp_bits[other_item.ordinal >>> 6] |= 1L << other_item.ordinal;
+                }
+            }
+            result = new Gs1AiSet(other, temp_bits);
+            this.rebound = result;
+        }
+        return result;
+    }
+
+    public boolean contains(Gs1DataFields.Field_Item field)
+    {
+        if (field.getDictionary() != this.dictionary)
+        {
+            return field.getDictionary() != null && forDictionary(field.getDictionary()).contains(field);
+        }
+        int ordinal = field.ordinal;
+        return ordinal >= 0 && (ordinal >>> 6) < this.bits.length && (this.bits[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public List<Gs1DataFields.Field_Item> getItems()
+    {
+        List<Gs1DataFields.Field_Item> result = new ArrayList<>();
+        for (int i = 0; i < this.bits.length * 64; i++)
+        {
+            if ((this.bits[i >>> 6] & (1L << i)) != 0)
+            {
+                result.add(this.dictionary.getItemByOrdinal(i));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder strBuilder = new StringBuilder("[");
+        for (Gs1DataFields.Field_Item item : getItems())
+        {
+            strBuilder.append(strBuilder.length() > 1 ? ", " : "").append(item.applicationIdentifier);
+        }
+        return strBuilder.append("]").toString();
+    }
+}
@@ -0,0 +1,172 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveAction;
+
+public class Gs1BatchDecoder
+{
+    // Decodes large lists of codes in parallel. Results keep the order of the input, a failing code
+    // is reported in its own entry and does not stop the batch. Every task decodes with its own
+    // Gs1Decoder, so workers share no mutable state.
+
+    public static class Gs1BatchItem
+    {
+        public final int index;
+        public final Gs1Result result;
+        public final Gs1Decoder.Gs1Exception error;
+
+        public Gs1BatchItem(int index, Gs1Result result, Gs1Decoder.Gs1Exception error)
+        {
+            this.index = index;
+            this.result = result;
+            this.error = error;
+        }
+
+        // false for codes that failed to decode or have no GS1 prefix
+        public boolean isDecoded()
+        {
+            return this.result != null;
+        }
+
+        @Override
+        public String toString()
+        {
+            if (this.error != null)
+            {
+                return this.index + ": " + this.error.getMessage();
+            }
+            return this.index + ": " + (this.result != null ? this.result.size() + " items" : "no GS1 code");
+        }
+    }
+
+    private static final int MIN_CHUNK = 256;
+
+    private static class DefaultPool
+    {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    private static Gs1BatchItem decodeOne(Gs1Decoder decoder, int index, CharSequence code)
+    {
+        try
+        {
+            int status = decoder.tryDecodeInto(code);
+            Gs1Result result = status == Gs1Decoder.STATUS_OK ? decoder.toResult() : null;
+            return new Gs1BatchItem(index, result, decoder.getError());
+        }
+        finally
+        {
+            decoder.reset();
+        }
+    }
+
+    private static void decodeRange(List<? extends CharSequence> codes, Gs1BatchItem[] results, int from, int to)
+    {
+        Gs1Decoder decoder = new Gs1Decoder();
+        for (int i = from; i < to; i++)
+        {
+            results[i] = decodeOne(decoder, i, codes.get(i));
+        }
+    }
+
+    private static int chunkSize(int count, int parallelism)
+    {
+        // a few chunks per worker to even out differences in code length
+        return Math.max(MIN_CHUNK, count / (Math.max(parallelism, 1) * 8) + 1);
+    }
+
+    private static class DecodeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 4215786329870912201L;
+        private final List<? extends CharSequence> codes;
+        private final Gs1BatchItem[] results;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        DecodeTask(List<? extends CharSequence> codes, Gs1BatchItem[] results, int from, int to, int chunk)
+        {
+            this.codes = codes;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (this.to - this.from <= this.chunk)
+            {
+                decodeRange(this.codes, this.results, this.from, this.to);
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new DecodeTask(this.codes, this.results, this.from, middle, this.chunk),
+                      new DecodeTask(this.codes, this.results, middle, this.to, this.chunk));
+        }
+    }
+
+    public static List<Gs1BatchItem> decodeAll(CharSequence[] codes)
+    {
+        return decodeAll(Arrays.asList(codes), DefaultPool.POOL);
+    }
+
+    public static List<Gs1BatchItem> decodeAll(List<? extends CharSequence> codes)
+    {
+        return decodeAll(codes, DefaultPool.POOL);
+    }
+
+    public static List<Gs1BatchItem> decodeAll(List<? extends CharSequence> codes, ForkJoinPool pool)
+    {
+        Gs1BatchItem[] results = new Gs1BatchItem[codes.size()];
+        pool.invoke(new DecodeTask(codes, results, 0, results.length, chunkSize(results.length, pool.getParallelism())));
+        return Arrays.asList(results);
+    }
+
+    public static List<Gs1BatchItem> decodeAll(final List<? extends CharSequence> codes, Executor executor, int parallelism)
+    {
+        final Gs1BatchItem[] results = new Gs1BatchItem[codes.size()];
+        int chunk = chunkSize(results.length, parallelism);
+        List<FutureTask<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < results.length; from += chunk)
+        {
+            final int task_from = from;
+            final int task_to = Math.min(from + chunk, results.length);
+            FutureTask<Void> task = new FutureTask<>(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    decodeRange(codes, results, task_from, task_to);
+                }
+            }, null);
+            tasks.add(task);
+            executor.execute(task);
+        }
+
+        for (FutureTask<Void> task : tasks)
+        {
+            try
+            {
+                task.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Batch decode interrupted", e);
+            }
+            catch (ExecutionException e)
+            {
+                throw new IllegalStateException("Batch decode failed", e.getCause());
+            }
+        }
+        return Arrays.asList(results);
+    }
+}
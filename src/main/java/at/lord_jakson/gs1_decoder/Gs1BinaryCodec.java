@@ -0,0 +1,502 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class Gs1BinaryCodec
+{
+    // Compact binary form of decoded results for queues and journals.
+    //
+    // stream  = header record*
+    // header  = "GS1B" formatVersion:u8 dictionaryVersion:i32 (Field_ListRoot.getVersion())
+    // record  = bodyLength:varint body
+    // body    = type:u8 (codeType | symbology << 4) count:varint element*
+    // element = ordinal:varint flags:u8 [decimalChar:u8 if var-decimal] payload
+    // payload = RAW:     length:varint bytes
+    //           NUMERIC: digits:varint value:varlong
+    //           FIXED:   value:varlong (all digits, length is the fixed length of the AI)
+    //
+    // AIs are stored as dictionary ordinals, so a reader only accepts streams written with the same
+    // dictionary version. Readers skip bytes after the last element of a record.
+
+    public static final int FORMAT_VERSION = 1;
+
+    static final int FLAG_VALID = 1;
+    static final int FLAG_CHECK_DIGIT_VALID = 2;
+    static final int ENCODING_SHIFT = 2;
+    static final int ENCODING_RAW = 0;
+    static final int ENCODING_NUMERIC = 1;
+    static final int ENCODING_FIXED = 2;
+
+    private static final byte[] MAGIC = {'G', 'S', '1', 'B'};
+
+    public static class Gs1BinaryWriter implements Flushable
+    {
+        private final OutputStream out;
+        private final Gs1DataFields.Field_ListRoot dictionary;
+        private byte[] record;
+        private int record_len;
+        private final byte[] frame;
+        private long records;
+
+        public Gs1BinaryWriter(OutputStream out) throws IOException
+        {
+            this(out, Gs1DataFields.getDictionary());
+        }
+
+        public Gs1BinaryWriter(OutputStream out, Gs1DataFields.Field_ListRoot dictionary) throws IOException
+        {
+            this.out = out;
+            this.dictionary = dictionary;
+            this.record = new byte[256];
+            this.frame = new byte[5];
+
+            byte[] header = new byte[9];
+            System.arraycopy(MAGIC, 0, header, 0, 4);
+            header[4] = (byte) FORMAT_VERSION;
+            int version = dictionary.getVersion();
+            header[5] = (byte) (version >>> 24);
+            header[6] = (byte) (version >>> 16);
+            header[7] = (byte) (version >>> 8);
+            header[8] = (byte) version;
+            out.write(header);
+        }
+
+        private void ensure(int extra)
+        {
+            if (this.record_len + extra > this.record.length)
+            {
+                this.record = Arrays.copyOf(this.record, Math.max(this.record.length * 2, this.record_len + extra));
+            }
+        }
+
+        private void put(int value)
+        {
+            ensure(1);
+            this.record[this.record_len++] = (byte) value;
+        }
+
+        private void putVarLong(long value)
+        {
+            ensure(10);
+            while ((value & ~0x7FL) != 0)
+            {
+                this.record[this.record_len++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.record[this.record_len++] = (byte) value;
+        }
+
+        private void putElement(Gs1Element element)
+        {
+            Gs1DataFields.Field_Item field = element.field;
+            if (field.ordinal < 0 || field.ordinal >= this.dictionary.getItemCount() || this.dictionary.getItemByOrdinal(field.ordinal) != field)
+            {
+                throw new IllegalArgumentException("AI " + field.applicationIdentifier + " is not part of the dictionary");
+            }
+            Gs1DataSlice data = element.data;
+            int data_len = data.length();
+            int encoding = ENCODING_RAW;
+            if (data_len > 0 && data_len <= 18 && element.isNumeric())
+            {
+                encoding = data_len == field.getDataLen() ? ENCODING_FIXED : ENCODING_NUMERIC;
+            }
+
+            putVarLong(field.ordinal);
+            put((element.valid ? FLAG_VALID : 0) | (element.checkDigitValid ? FLAG_CHECK_DIGIT_VALID : 0) | (encoding << ENCODING_SHIFT));
+            if (field.getVarDec())
+            {
+                put(element.decimalChar);
+            }
+            switch (encoding)
+            {
+                case ENCODING_NUMERIC:
+                    putVarLong(data_len);
+                    putVarLong(element.getLong());
+                    break;
+                case ENCODING_FIXED:
+                    putVarLong(element.getLong());
+                    break;
+                default:
+                    putVarLong(data_len);
+                    ensure(data_len);
+                    System.arraycopy(data.getArray(), data.getOffset(), this.record, this.record_len, data_len);
+                    this.record_len += data_len;
+                    break;
+            }
+        }
+
+        private void writeRecord(Gs1Decoder.Gs1Decoder_CodeType codeType, Gs1Decoder.Gs1Decoder_Symbology symbology, Gs1Element[] elements, int count) throws IOException
+        {
+            this.record_len = 0;
+            put(codeType.ordinal() | symbology.ordinal() << 4);
+            putVarLong(count);
+            for (int i = 0; i < count; i++)
+            {
+                putElement(elements[i]);
+            }
+
+            int frame_len = 0;
+            int length = this.record_len;
+            while ((length & ~0x7F) != 0)
+            {
+                this.frame[frame_len++] = (byte) ((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            this.frame[frame_len++] = (byte) length;
+            this.out.write(this.frame, 0, frame_len);
+            this.out.write(this.record, 0, this.record_len);
+            this.records += 1;
+        }
+
+        // the elements of the last decode, the decoder must hold a decoded code
+        public void write(Gs1Decoder decoder) throws IOException
+        {
+            Gs1Decoder.Gs1Decoder_CodeType codeType = decoder.getDecodedCodeType();
+            if (codeType == null || codeType == Gs1Decoder.Gs1Decoder_CodeType.NONE)
+            {
+                throw new IllegalArgumentException("Decoder holds no decoded code");
+            }
+            writeRecord(codeType, decoder.getSymbology(), decoder.getElements(), decoder.size());
+        }
+
+        public void write(Gs1Result result) throws IOException
+        {
+            writeRecord(result.getCodeType(), result.getSymbology(), result.getElements(), result.size());
+        }
+
+        public long getRecordCount()
+        {
+            return this.records;
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            this.out.flush();
+        }
+    }
+
+    public static class Gs1BinaryReader
+    {
+        // Reads the records of a stream in place. Element data of heap buffers is used where it is,
+        // packed numbers stay numbers until getElement needs their digits. Element views are only
+        // valid until the next call of next().
+
+        private final ByteBuffer in;
+        private final Gs1DataFields.Field_ListRoot dictionary;
+        private final Gs1Decoder.Gs1Decoder_CodeType[] codeTypes;
+        private final Gs1Decoder.Gs1Decoder_Symbology[] symbologies;
+        private Gs1Decoder.Gs1Decoder_CodeType codeType;
+        private Gs1Decoder.Gs1Decoder_Symbology symbology;
+        private int count;
+        private Gs1DataFields.Field_Item[] fields;
+        private int[] flags;
+        private char[] decimalChars;
+        private int[] dataPos;
+        private int[] dataLen;
+        private long[] values;
+        private int[] scratchPos;
+        private byte[] scratch;
+        private Gs1Element[] views;
+
+        public Gs1BinaryReader(ByteBuffer in)
+        {
+            this(in, Gs1DataFields.getDictionary());
+        }
+
+        // reads the header at the position of in, rejects streams of other formats or dictionaries
+        public Gs1BinaryReader(ByteBuffer in, Gs1DataFields.Field_ListRoot dictionary)
+        {
+            this.in = in;
+            this.dictionary = dictionary;
+            this.codeTypes = Gs1Decoder.Gs1Decoder_CodeType.values();
+            this.symbologies = Gs1Decoder.Gs1Decoder_Symbology.values();
+            if (in.remaining() < 9)
+            {
+                throw new IllegalArgumentException("No GS1 binary stream");
+            }
+            for (byte magic : MAGIC)
+            {
+                if (in.get() != magic)
+                {
+                    throw new IllegalArgumentException("No GS1 binary stream");
+                }
+            }
+            int format = in.get() & 0xFF;
+            if (format != FORMAT_VERSION)
+            {
+                throw new IllegalArgumentException("Unsupported format version " + format);
+            }
+            int version = in.getInt();
+            if (version != dictionary.getVersion())
+            {
+                throw new IllegalArgumentException(String.format("Dictionary version %08x does not match %08x", version, dictionary.getVersion()));
+            }
+
+            this.fields = new Gs1DataFields.Field_Item[8];
+            this.flags = new int[8];
+            this.decimalChars = new char[8];
+            this.dataPos = new int[8];
+            this.dataLen = new int[8];
+            this.values = new long[8];
+            this.scratchPos = new int[8];
+            this.scratch = new byte[64];
+            this.views = new Gs1Element[8];
+        }
+
+        // a byte of the record, end is the position after its last byte
+        private int get(int end)
+        {
+            if (this.in.position() >= end)
+            {
+                throw new IllegalArgumentException("Truncated record at " + this.in.position());
+            }
+            return this.in.get() & 0xFF;
+        }
+
+        private long getVarLong(int end)
+        {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7)
+            {
+                int temp = get(end);
+                result |= (long) (temp & 0x7F) << shift;
+                if (temp < 0x80)
+                {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Corrupt varint at " + this.in.position());
+        }
+
+        private int getVarInt(int end)
+        {
+            long result = getVarLong(end);
+            if (result < 0 || result > Integer.MAX_VALUE)
+            {
+                throw new IllegalArgumentException("Corrupt length at " + this.in.position());
+            }
+            return (int) result;
+        }
+
+        private void grow(int capacity)
+        {
+            this.fields = Arrays.copyOf(this.fields, capacity);
+            this.flags = Arrays.copyOf(this.flags, capacity);
+            this.decimalChars = Arrays.copyOf(this.decimalChars, capacity);
+            this.dataPos = Arrays.copyOf(this.dataPos, capacity);
+            this.dataLen = Arrays.copyOf(this.dataLen, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+            this.scratchPos = Arrays.copyOf(this.scratchPos, capacity);
+            this.views = Arrays.copyOf(this.views, capacity);
+        }
+
+        // moves to the next record, false at the end of the buffer
+        public boolean next()
+        {
+            if (!this.in.hasRemaining())
+            {
+                this.count = 0;
+                return false;
+            }
+            int length = getVarInt(this.in.limit());
+            if (length > this.in.remaining())
+            {
+                throw new IllegalArgumentException("Truncated record at " + this.in.position());
+            }
+
+            int record_end = this.in.position() + length;
+            int type = get(record_end);
+            if ((type & 0x0F) >= this.codeTypes.length || type >> 4 >= this.symbologies.length)
+            {
+                throw new IllegalArgumentException("Corrupt code type " + type);
+            }
+            this.codeType = this.codeTypes[type & 0x0F];
+            this.symbology = this.symbologies[type >> 4];
+            int elements = getVarInt(record_end);
+            if (elements > length)
+            {
+                throw new IllegalArgumentException("Corrupt element count " + elements);
+            }
+            if (elements > this.fields.length)
+            {
+                grow(Math.max(elements, this.fields.length * 2));
+            }
+
+            int scratch_len = 0;
+            for (int i = 0; i < elements; i++)
+            {
+                int ordinal = getVarInt(record_end);
+                if (ordinal >= this.dictionary.getItemCount())
+                {
+                    throw new IllegalArgumentException("Corrupt ordinal " + ordinal);
+                }
+                Gs1DataFields.Field_Item field = this.dictionary.getItemByOrdinal(ordinal);
+                int temp_flags = get(record_end);
+                this.fields[i] = field;
+                this.flags[i] = temp_flags;
+                this.decimalChars[i] = field.getVarDec() ? (char) get(record_end) : 0;
+                switch (temp_flags >>> ENCODING_SHIFT)
+                {
+                    case ENCODING_NUMERIC:
+                        this.dataLen[i] = getVarInt(record_end);
+                        this.values[i] = getVarLong(record_end);
+                        this.dataPos[i] = -1;
+                        if (this.dataLen[i] > 18)
+                        {
+                            throw new IllegalArgumentException("Corrupt digit count " + this.dataLen[i]);
+                        }
+                        break;
+                    case ENCODING_FIXED:
+                        this.dataLen[i] = field.getDataLen();
+                        this.values[i] = getVarLong(record_end);
+                        this.dataPos[i] = -1;
+                        break;
+                    case ENCODING_RAW:
+                        this.dataLen[i] = getVarInt(record_end);
+                        this.dataPos[i] = this.in.position();
+                        if (this.dataLen[i] > record_end - this.dataPos[i])
+                        {
+                            throw new IllegalArgumentException("Corrupt data length " + this.dataLen[i]);
+                        }
+                        this.in.position(this.dataPos[i] + this.dataLen[i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Corrupt element flags " + temp_flags);
+                }
+                if (this.dataPos[i] < 0 || !this.in.hasArray())
+                {
+                    this.scratchPos[i] = scratch_len;
+                    scratch_len += this.dataLen[i];
+                }
+                else
+                {
+                    this.scratchPos[i] = -1;
+                }
+            }
+            if (this.scratch.length < scratch_len)
+            {
+                this.scratch = new byte[Math.max(scratch_len, this.scratch.length * 2)];
+            }
+            this.count = elements;
+            this.in.position(record_end);
+            return true;
+        }
+
+        public Gs1Decoder.Gs1Decoder_CodeType getCodeType()
+        {
+            return this.codeType;
+        }
+
+        public Gs1Decoder.Gs1Decoder_Symbology getSymbology()
+        {
+            return this.symbology;
+        }
+
+        public int size()
+        {
+            return this.count;
+        }
+
+        private int checkIndex(int index)
+        {
+            if (index < 0 || index >= this.count)
+            {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.count);
+            }
+            return index;
+        }
+
+        public Gs1DataFields.Field_Item getField(int index)
+        {
+            return this.fields[checkIndex(index)];
+        }
+
+        public boolean isValid(int index)
+        {
+            return (this.flags[checkIndex(index)] & FLAG_VALID) != 0;
+        }
+
+        // true if the data was stored as packed number and getLong needs no parsing
+        public boolean isPacked(int index)
+        {
+            return this.dataPos[checkIndex(index)] < 0;
+        }
+
+        public long getLong(int index)
+        {
+            if (isPacked(index))
+            {
+                return this.values[index];
+            }
+            return getElement(index, this.view(index)).getLong();
+        }
+
+        private Gs1Element view(int index)
+        {
+            Gs1Element element = this.views[index];
+            if (element == null)
+            {
+                element = new Gs1Element();
+                this.views[index] = element;
+            }
+            return element;
+        }
+
+        // fills target with a view of the element, packed numbers are written out as digits
+        public Gs1Element getElement(int index, Gs1Element target)
+        {
+            checkIndex(index);
+            Gs1DataFields.Field_Item field = this.fields[index];
+            int data_len = this.dataLen[index];
+            byte[] array;
+            int offset;
+            if (this.scratchPos[index] < 0)
+            {
+                array = this.in.array();
+                offset = this.in.arrayOffset() + this.dataPos[index];
+            }
+            else
+            {
+                array = this.scratch;
+                offset = this.scratchPos[index];
+                if (this.dataPos[index] < 0)
+                {
+                    long value = this.values[index];
+                    for (int i = offset + data_len - 1; i >= offset; i--)
+                    {
+                        array[i] = (byte) ('0' + value % 10);
+                        value /= 10;
+                    }
+                }
+                else
+                {
+                    for (int i = 0; i < data_len; i++)
+                    {
+                        array[offset + i] = this.in.get(this.dataPos[index] + i);
+                    }
+                }
+            }
+
+            char decimalChar = this.decimalChars[index];
+            int decimals = decimalChar >= '0' && decimalChar <= '9' ? decimalChar - '0' : 0;
+            target.set(field, decimalChar, decimals, array, offset, offset, data_len);
+            target.valid = (this.flags[index] & FLAG_VALID) != 0;
+            target.checkDigitValid = (this.flags[index] & FLAG_CHECK_DIGIT_VALID) != 0;
+            return target;
+        }
+
+        public Gs1Result toResult()
+        {
+            for (int i = 0; i < this.count; i++)
+            {
+                getElement(i, view(i));
+            }
+            return new Gs1Result(this.codeType, this.symbology, this.dictionary, this.views, this.count);
+        }
+    }
+}
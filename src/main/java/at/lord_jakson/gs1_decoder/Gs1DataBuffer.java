@@ -1,58 +1,404 @@
 package at.lord_jakson.gs1_decoder;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 
 public class Gs1DataBuffer
 {
-    private final byte[] array_buffer;
+    // Positions (getArrayPos, slices) are indices into the backing array, which is the caller's array
+    // for byte[] and heap ByteBuffer input. Direct buffers and CharSequences are copied once.
+    // On request the search for the end of a variable-length field also checks in the same pass whether
+    // all of its bytes are GS1 chars, so the validator can skip that check (isSpanGs1Chars). That search
+    // tests 8 bytes at a time (SWAR: one long holds 8 bytes, bit tricks test all of them at once), the
+    // words are put together from the array bytes (getLong), a ByteBuffer view per search is not reliably
+    // optimized away and decodeInto has to stay free of allocations. Put together like that, words only
+    // pay off for the range checks, the plain separator search on arrays is faster byte by byte.
+    // Direct buffers read whole words and are always searched 8 bytes at a time.
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGHS = 0x8080808080808080L;
+    // stands in for the bytes behind the separator in the last word, a GS1 char
+    private static final long FILL = 0x4141414141414141L;
+
+    private byte[] array_buffer;
+    private int array_start;
+    private int array_end;
     private int array_pos;
+    private byte[] scratch_buffer;
+    private byte[] escape_buffer;
+    private boolean span_gs1_chars;
+
+    public Gs1DataBuffer()
+    {
+        this.array_buffer = new byte[0];
+    }
 
     public Gs1DataBuffer(String data)
     {
         this.array_buffer = data.getBytes(StandardCharsets.US_ASCII);
+        this.array_start = 0;
+        this.array_end = this.array_buffer.length;
+        this.array_pos = 0;
+    }
+
+    public Gs1DataBuffer(CharSequence data)
+    {
+        this.array_buffer = new byte[data.length()];
+        this.array_start = 0;
+        this.array_end = copyChars(data, this.array_buffer);
         this.array_pos = 0;
     }
 
+    public Gs1DataBuffer(byte[] data)
+    {
+        this(data, 0, data.length);
+    }
+
+    public Gs1DataBuffer(byte[] data, int offset, int length)
+    {
+        if (offset < 0 || length < 0 || offset > data.length - length)
+        {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + data.length);
+        }
+        this.array_buffer = data;
+        this.array_start = offset;
+        this.array_end = offset + length;
+        this.array_pos = offset;
+    }
+
+    public Gs1DataBuffer(ByteBuffer data)
+    {
+        // reads the remaining bytes, the position of the ByteBuffer is not changed
+        if (data.hasArray())
+        {
+            this.array_buffer = data.array();
+            this.array_start = data.arrayOffset() + data.position();
+        }
+        else
+        {
+            this.array_buffer = new byte[data.remaining()];
+            this.array_start = 0;
+            copyBytes(data, this.array_buffer);
+        }
+        this.array_end = this.array_start + data.remaining();
+        this.array_pos = this.array_start;
+    }
+
+    // The reset methods point a reused buffer at new input, the copy for direct buffers and CharSequences
+    // goes to a scratch array that is kept and only grown when an input does not fit.
+
+    public Gs1DataBuffer reset(byte[] data, int offset, int length)
+    {
+        if (offset < 0 || length < 0 || offset > data.length - length)
+        {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + data.length);
+        }
+        this.array_buffer = data;
+        this.array_start = offset;
+        this.array_end = offset + length;
+        this.array_pos = offset;
+        return this;
+    }
+
+    public Gs1DataBuffer reset(ByteBuffer data)
+    {
+        if (data.hasArray())
+        {
+            return reset(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        }
+        byte[] scratch = scratch(data.remaining());
+        copyBytes(data, scratch);
+        return reset(scratch, 0, data.remaining());
+    }
+
+    public Gs1DataBuffer reset(CharSequence data)
+    {
+        byte[] scratch = scratch(data.length());
+        return reset(scratch, 0, copyChars(data, scratch));
+    }
+
+    private byte[] scratch(int length)
+    {
+        if (this.scratch_buffer == null || this.scratch_buffer.length < length)
+        {
+            this.scratch_buffer = new byte[Math.max(length, 64)];
+        }
+        return this.scratch_buffer;
+    }
+
+    // target for data that has to be unescaped (Digital Link), kept like the scratch array
+    byte[] escapeBuffer(int length)
+    {
+        if (this.escape_buffer == null || this.escape_buffer.length < length)
+        {
+            this.escape_buffer = new byte[Math.max(length, 64)];
+        }
+        return this.escape_buffer;
+    }
+
+    static int copyChars(CharSequence data, byte[] dest)
+    {
+        // same replacement as String.getBytes(US_ASCII) for chars outside of ASCII
+        int len = data.length();
+        for (int i = 0; i < len; i++)
+        {
+            char temp = data.charAt(i);
+            dest[i] = temp < 128 ? (byte) temp : (byte) '?';
+        }
+        return len;
+    }
+
+    static void copyBytes(ByteBuffer data, byte[] dest)
+    {
+        int pos = data.position();
+        data.get(dest, 0, data.remaining());
+        data.position(pos);
+    }
+
     public String readDataFix(int dataLen)
     {
-        dataLen = Math.min(dataLen, this.array_buffer.length - this.array_pos);
-        String result = new String(this.array_buffer, this.array_pos, dataLen, StandardCharsets.US_ASCII);
-        this.array_pos += dataLen;
-        return result;
+        int pos = this.array_pos;
+        return getString(pos, readSpanFix(dataLen));
     }
 
     public String readDataVar(char untilChar)
     {
-        int temp_pos = this.array_pos;
-        while (temp_pos < this.array_buffer.length && this.array_buffer[temp_pos] != untilChar)
+        int pos = this.array_pos;
+        return getString(pos, readSpanVar(untilChar));
+    }
+
+    // Advances over up to dataLen bytes, returns the number of bytes read.
+    public int readSpanFix(int dataLen)
+    {
+        dataLen = Math.max(Math.min(dataLen, this.array_end - this.array_pos), 0);
+        this.array_pos += dataLen;
+        this.span_gs1_chars = false;
+        return dataLen;
+    }
+
+    // Advances over the data and the terminating char (if present), returns the data length without the terminator.
+    public int readSpanVar(char untilChar)
+    {
+        return readSpanVar(untilChar, false);
+    }
+
+    // same, checkGs1Chars also finds out whether all bytes of the data are GS1 chars (isSpanGs1Chars)
+    int readSpanVar(char untilChar, boolean checkGs1Chars)
+    {
+        byte[] array = this.array_buffer;
+        int end = this.array_end;
+        int temp_pos;
+        boolean gs1_chars = false;
+        if (untilChar > 255)
         {
-            temp_pos += 1;
+            // no byte matches, the data runs to the end
+            temp_pos = end;
+        }
+        else if (!checkGs1Chars)
+        {
+            temp_pos = indexOf(array, this.array_pos, end, (byte) untilChar);
+        }
+        else
+        {
+            temp_pos = this.array_pos;
+            long pattern = ONES * untilChar;
+            long invalid = 0;
+            while (temp_pos <= end - 8)
+            {
+                long word = getLong(array, temp_pos);
+                long found = zeroBytes(word ^ pattern);
+                if (found != 0)
+                {
+                    int count = bytesBefore(found, true);
+                    long keep = count > 0 ? -1L >>> (64 - 8 * count) : 0;
+                    invalid |= nonGs1Chars(word & keep | FILL & ~keep);
+                    temp_pos += count;
+                    break;
+                }
+                invalid |= nonGs1Chars(word);
+                temp_pos += 8;
+            }
+            if (temp_pos > end - 8 || array[temp_pos] != (byte) untilChar)
+            {
+                while (temp_pos < end && array[temp_pos] != (byte) untilChar)
+                {
+                    invalid |= isGs1Char(array[temp_pos]) ? 0 : 1;
+                    temp_pos += 1;
+                }
+            }
+            gs1_chars = invalid == 0;
         }
 
         int dataLen = temp_pos - this.array_pos;
-        String result = new String(this.array_buffer, this.array_pos, dataLen, StandardCharsets.US_ASCII);
-        this.array_pos += dataLen + 1;
-        return result;
+        this.span_gs1_chars = gs1_chars;
+        this.array_pos = temp_pos < end ? temp_pos + 1 : temp_pos;
+        return dataLen;
+    }
+
+    // true if the last readSpanVar checked for GS1 chars and all bytes of the span are GS1 chars
+    // (Gs1DataValidator.GS1_CHARS_LO/HI)
+    boolean isSpanGs1Chars()
+    {
+        return this.span_gs1_chars;
+    }
+
+    // position of the first value in array[from..end), end if there is none
+    static int indexOf(byte[] array, int from, int end, byte value)
+    {
+        int temp_pos = from;
+        while (temp_pos < end && array[temp_pos] != value)
+        {
+            temp_pos += 1;
+        }
+        return temp_pos;
+    }
+
+    // same for buffer[from..end) by absolute index, for direct buffers without a copy; either byte order
+    static int indexOf(ByteBuffer buffer, int from, int end, byte value)
+    {
+        int temp_pos = from;
+        boolean little_endian = buffer.order() == ByteOrder.LITTLE_ENDIAN;
+        long pattern = ONES * (value & 0xFF);
+        while (temp_pos <= end - 8)
+        {
+            long found = zeroBytes(buffer.getLong(temp_pos) ^ pattern);
+            if (found != 0)
+            {
+                return temp_pos + bytesBefore(found, little_endian);
+            }
+            temp_pos += 8;
+        }
+        while (temp_pos < end && buffer.get(temp_pos) != value)
+        {
+            temp_pos += 1;
+        }
+        return temp_pos;
+    }
+
+    // position of the last value in buffer[from..end), from - 1 if there is none; 8 bytes at a time
+    static int lastIndexOf(ByteBuffer buffer, int from, int end, byte value)
+    {
+        int temp_pos = end;
+        boolean little_endian = buffer.order() == ByteOrder.LITTLE_ENDIAN;
+        long pattern = ONES * (value & 0xFF);
+        while (temp_pos - 8 >= from)
+        {
+            temp_pos -= 8;
+            long found = zeroBytes(buffer.getLong(temp_pos) ^ pattern);
+            if (found != 0)
+            {
+                return temp_pos + 7 - bytesAfter(found, little_endian);
+            }
+        }
+        temp_pos -= 1;
+        while (temp_pos >= from && buffer.get(temp_pos) != value)
+        {
+            temp_pos -= 1;
+        }
+        return temp_pos;
+    }
+
+    // array[pos..pos+8) little-endian, the first byte is the lowest
+    private static long getLong(byte[] array, int pos)
+    {
+        return (array[pos] & 0xFFL)
+               | (array[pos + 1] & 0xFFL) << 8
+               | (array[pos + 2] & 0xFFL) << 16
+               | (array[pos + 3] & 0xFFL) << 24
+               | (array[pos + 4] & 0xFFL) << 32
+               | (array[pos + 5] & 0xFFL) << 40
+               | (array[pos + 6] & 0xFFL) << 48
+               | (long) array[pos + 7] << 56;
+    }
+
+    // number of bytes of a word in front of the first marked one, in memory order
+    private static int bytesBefore(long found, boolean littleEndian)
+    {
+        return (littleEndian ? Long.numberOfTrailingZeros(found) : Long.numberOfLeadingZeros(found)) >>> 3;
+    }
+
+    // number of bytes of a word behind the last marked one, in memory order
+    private static int bytesAfter(long found, boolean littleEndian)
+    {
+        return (littleEndian ? Long.numberOfLeadingZeros(found) : Long.numberOfTrailingZeros(found)) >>> 3;
+    }
+
+    // high bit of every zero byte, exact per byte (no carry crosses a byte)
+    private static long zeroBytes(long word)
+    {
+        return ~((word & LOW7) + LOW7 | word | LOW7);
+    }
+
+    // high bit of every byte in (low, high), low and high 0..128; bytes >= 0x80 are never in range
+    private static long bytesBetween(long word, int low, int high)
+    {
+        long low7 = word & LOW7;
+        return (ONES * (127 + high) - low7) & ~word & (low7 + ONES * (127 - low)) & HIGHS;
+    }
+
+    // high bit of every byte that is not a GS1 char: outside of 0x21..0x7A or one of # $ @ [ \ ] ^ `
+    private static long nonGs1Chars(long word)
+    {
+        return ~bytesBetween(word, 0x20, 0x7B) & HIGHS | bytesBetween(word, 0x22, 0x25) | bytesBetween(word, 0x3F, 0x41)
+               | bytesBetween(word, 0x5A, 0x5F) | bytesBetween(word, 0x5F, 0x61);
+    }
+
+    private static boolean isGs1Char(byte value)
+    {
+        return value >= 0 && (value < 64 ? (Gs1DataValidator.GS1_CHARS_LO >>> value & 1) != 0 : (Gs1DataValidator.GS1_CHARS_HI >>> (value - 64) & 1) != 0);
+    }
+
+    // moves the read position to an index of the backing array between the start and the end
+    Gs1DataBuffer seek(int pos)
+    {
+        if (pos < this.array_start || pos > this.array_end)
+        {
+            throw new IndexOutOfBoundsException("pos " + pos + ", start " + this.array_start + ", end " + this.array_end);
+        }
+        this.array_pos = pos;
+        return this;
+    }
+
+    public String getString(int pos, int dataLen)
+    {
+        return new String(this.array_buffer, pos, dataLen, StandardCharsets.US_ASCII);
     }
 
     public char readChar()
     {
         if (notEod())
         {
-            char result = (char)this.array_buffer[this.array_pos];
+            char result = (char) (this.array_buffer[this.array_pos] & 0xFF);
             this.array_pos += 1;
             return result;
         }
         return 0;
     }
 
+    byte[] getArray()
+    {
+        return this.array_buffer;
+    }
+
+    public int getArrayOffset()
+    {
+        return this.array_start;
+    }
+
     public int getArrayPos()
     {
         return this.array_pos;
     }
 
+    public int getArrayEnd()
+    {
+        return this.array_end;
+    }
+
     public boolean notEod()
     {
-        return this.array_pos < this.array_buffer.length;
+        return this.array_pos < this.array_end;
     }
 }
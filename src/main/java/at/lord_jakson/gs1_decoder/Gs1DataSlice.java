@@ -0,0 +1,95 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.nio.charset.StandardCharsets;
+
+public class Gs1DataSlice implements CharSequence
+{
+    // Read-only ASCII view of a range of a Gs1DataBuffer array, a String is only built by toString()
+
+    private byte[] array_buffer;
+    private int array_offset;
+    private int array_len;
+
+    public Gs1DataSlice()
+    {
+        this.array_buffer = new byte[0];
+        this.array_offset = 0;
+        this.array_len = 0;
+    }
+
+    public Gs1DataSlice(byte[] data, int offset, int length)
+    {
+        set(data, offset, length);
+    }
+
+    void set(byte[] data, int offset, int length)
+    {
+        this.array_buffer = data;
+        this.array_offset = offset;
+        this.array_len = length;
+    }
+
+    // the array is shared with the buffer or Gs1Result the slice points into, it is not handed out
+    byte[] getArray()
+    {
+        return this.array_buffer;
+    }
+
+    int getOffset()
+    {
+        return this.array_offset;
+    }
+
+    public byte byteAt(int index)
+    {
+        if (index < 0 || index >= this.array_len)
+        {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + this.array_len);
+        }
+        return this.array_buffer[this.array_offset + index];
+    }
+
+    @Override
+    public int length()
+    {
+        return this.array_len;
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        return (char) (byteAt(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        if (start < 0 || end > this.array_len || start > end)
+        {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + this.array_len);
+        }
+        return new Gs1DataSlice(this.array_buffer, this.array_offset + start, end - start);
+    }
+
+    public boolean contentEquals(CharSequence other)
+    {
+        if (other == null || other.length() != this.array_len)
+        {
+            return false;
+        }
+        for (int i = 0; i < this.array_len; i++)
+        {
+            if ((this.array_buffer[this.array_offset + i] & 0xFF) != other.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new String(this.array_buffer, this.array_offset, this.array_len, StandardCharsets.US_ASCII);
+    }
+}
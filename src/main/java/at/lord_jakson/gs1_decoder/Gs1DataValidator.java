@@ -0,0 +1,413 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class Gs1DataValidator
+{
+    // Compiled form of the AI format regexes in Gs1DataFields.
+    // A format is a sequence of segments (character class + min/max length) where only the last
+    // segment may have a variable length. Character classes are stored as 128 bit masks over ASCII.
+    // Formats that do not fit this shape keep the regex as fallback.
+
+    // the GS1 chars (VALID_CHARS of the AI table) as class mask, x21-x22 x25-x3F x41-x5A x5F x61-x7A
+    static final long GS1_CHARS_LO = 0xFFFFFFE600000000L;
+    static final long GS1_CHARS_HI = 0x07FFFFFE87FFFFFEL;
+
+    private final String applicationIdentifier;
+    private final boolean varDec;
+    private final long decimal_lo;
+    private final long decimal_hi;
+    private final long[] segment_lo;
+    private final long[] segment_hi;
+    private final int[] segment_len;
+    private final int fixedCount;
+    private final int fixedLen;
+    private final int varMin;
+    private final int varMax;
+    private final boolean gs1_segments;
+    // compiled on first use, most dictionaries never need java.util.regex
+    private final String fallbackRegEx;
+    private volatile Pattern fallback;
+
+    private Gs1DataValidator(String applicationIdentifier, boolean varDec, long[] decimal, List<long[]> segments, String fallbackRegEx)
+    {
+        this.applicationIdentifier = applicationIdentifier;
+        this.varDec = varDec;
+        this.fallbackRegEx = fallbackRegEx;
+        this.decimal_lo = decimal != null ? decimal[0] : 0;
+        this.decimal_hi = decimal != null ? decimal[1] : 0;
+
+        int count = segments != null ? segments.size() : 0;
+        int fixed_count = count;
+        int var_min = 0;
+        int var_max = 0;
+        if (count > 0)
+        {
+            long[] last = segments.get(count - 1);
+            if (last[2] != last[3])
+            {
+                fixed_count = count - 1;
+                var_min = (int) last[2];
+                var_max = (int) last[3];
+            }
+        }
+
+        this.segment_lo = new long[count];
+        this.segment_hi = new long[count];
+        this.segment_len = new int[count];
+        int fixed_len = 0;
+        boolean gs1_segments = false;
+        for (int i = 0; i < count; i++)
+        {
+            long[] segment = segments.get(i);
+            this.segment_lo[i] = segment[0];
+            this.segment_hi[i] = segment[1];
+            this.segment_len[i] = (int) segment[2];
+            gs1_segments |= isGs1Class(segment[0], segment[1]);
+            if (i < fixed_count)
+            {
+                fixed_len += (int) segment[2];
+            }
+        }
+        this.fixedCount = fixed_count;
+        this.fixedLen = fixed_len;
+        this.varMin = var_min;
+        this.varMax = var_max;
+        this.gs1_segments = gs1_segments;
+    }
+
+    public static Gs1DataValidator compile(String applicationIdentifier, String regEx, boolean varDec)
+    {
+        List<long[]> segments = parse(regEx, applicationIdentifier);
+        if (segments == null)
+        {
+            return new Gs1DataValidator(applicationIdentifier, varDec, null, null, regEx);
+        }
+
+        long[] decimal = null;
+        if (varDec)
+        {
+            long[] first = segments.get(0);
+            if (first[2] != 1 || first[3] != 1)
+            {
+                return new Gs1DataValidator(applicationIdentifier, varDec, null, null, regEx);
+            }
+            decimal = first;
+            segments.remove(0);
+        }
+
+        for (int i = 0; i < segments.size() - 1; i++)
+        {
+            long[] segment = segments.get(i);
+            if (segment[2] != segment[3])
+            {
+                return new Gs1DataValidator(applicationIdentifier, varDec, null, null, regEx);
+            }
+        }
+
+        return new Gs1DataValidator(applicationIdentifier, varDec, decimal, segments, null);
+    }
+
+    // Validator from getDescriptor() of a compiled one, for the generated dictionary tables.
+    // A null descriptor compiles the regex (fallback validators have no descriptor).
+    static Gs1DataValidator fromDescriptor(String applicationIdentifier, String regEx, boolean varDec, long[] descriptor)
+    {
+        if (descriptor == null)
+        {
+            return compile(applicationIdentifier, regEx, varDec);
+        }
+        List<long[]> segments = new ArrayList<>();
+        for (int pos = 2; pos < descriptor.length; pos += 4)
+        {
+            segments.add(new long[]{descriptor[pos], descriptor[pos + 1], descriptor[pos + 2], descriptor[pos + 3]});
+        }
+        return new Gs1DataValidator(applicationIdentifier, varDec, new long[]{descriptor[0], descriptor[1]}, segments, null);
+    }
+
+    // decimal class, then class and min/max length per segment; null for fallback validators
+    long[] getDescriptor()
+    {
+        if (this.fallbackRegEx != null)
+        {
+            return null;
+        }
+        int count = this.segment_lo.length;
+        long[] result = new long[2 + count * 4];
+        result[0] = this.decimal_lo;
+        result[1] = this.decimal_hi;
+        for (int i = 0; i < count; i++)
+        {
+            boolean fixed = i < this.fixedCount;
+            result[2 + i * 4] = this.segment_lo[i];
+            result[3 + i * 4] = this.segment_hi[i];
+            result[4 + i * 4] = fixed ? this.segment_len[i] : this.varMin;
+            result[5 + i * 4] = fixed ? this.segment_len[i] : this.varMax;
+        }
+        return result;
+    }
+
+    // GS1 mod-10 check digit over data[offset..offset+length), the last digit is the check digit.
+    // Weights alternate 3,1,... from the digit left of the check digit.
+    public static boolean isCheckDigitValid(byte[] data, int offset, int length)
+    {
+        if (length < 2)
+        {
+            return false;
+        }
+        int sum = 0;
+        int weight = 3;
+        for (int i = offset + length - 2; i >= offset; i--)
+        {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9)
+            {
+                return false;
+            }
+            sum += digit * weight;
+            weight = 4 - weight;
+        }
+        int check = data[offset + length - 1] - '0';
+        return check == (10 - sum % 10) % 10;
+    }
+
+    public boolean isCompiled()
+    {
+        return this.fallbackRegEx == null;
+    }
+
+    // true if a segment allows all GS1 chars, only then the gs1Chars hint of isValid saves work
+    boolean hasGs1Segments()
+    {
+        return this.gs1_segments;
+    }
+
+    public boolean isValid(byte[] data, char decimalChar, int offset, int length)
+    {
+        return isValid(data, decimalChar, offset, length, false);
+    }
+
+    // gs1Chars: the caller already knows that all bytes are GS1 chars (Gs1DataBuffer.isSpanGs1Chars),
+    // segments whose class contains all of them are only checked for their length
+    boolean isValid(byte[] data, char decimalChar, int offset, int length, boolean gs1Chars)
+    {
+        if (this.fallbackRegEx != null)
+        {
+            Pattern pattern = this.fallback;
+            if (pattern == null)
+            {
+                pattern = Pattern.compile(this.fallbackRegEx);
+                this.fallback = pattern;
+            }
+            String ai = this.varDec ? this.applicationIdentifier + decimalChar : this.applicationIdentifier;
+            return pattern.matcher(ai + new String(data, offset, length, StandardCharsets.US_ASCII)).matches();
+        }
+        if (this.varDec && !inClass(decimalChar, this.decimal_lo, this.decimal_hi))
+        {
+            return false;
+        }
+
+        int var_len = length - this.fixedLen;
+        if (var_len < this.varMin || var_len > this.varMax)
+        {
+            return false;
+        }
+
+        int pos = offset;
+        int count = this.segment_lo.length;
+        for (int i = 0; i < count; i++)
+        {
+            long lo = this.segment_lo[i];
+            long hi = this.segment_hi[i];
+            int end = pos + (i < this.fixedCount ? this.segment_len[i] : var_len);
+            if (gs1Chars && isGs1Class(lo, hi))
+            {
+                pos = end;
+            }
+            while (pos < end)
+            {
+                if (!inClass(data[pos], lo, hi))
+                {
+                    return false;
+                }
+                pos += 1;
+            }
+        }
+        return true;
+    }
+
+    // the class contains all GS1 chars
+    private static boolean isGs1Class(long lo, long hi)
+    {
+        return (GS1_CHARS_LO & ~lo) == 0 && (GS1_CHARS_HI & ~hi) == 0;
+    }
+
+    private static boolean inClass(int value, long lo, long hi)
+    {
+        if (value < 0 || value >= 128)
+        {
+            return false;
+        }
+        return value < 64 ? ((lo >>> value) & 1) != 0 : ((hi >>> (value - 64)) & 1) != 0;
+    }
+
+    // returns null for regexes that need the fallback, including a literal prefix that differs from the AI
+    private static List<long[]> parse(String regEx, String applicationIdentifier)
+    {
+        if (!regEx.startsWith("^") || !regEx.endsWith("$"))
+        {
+            return null;
+        }
+
+        int pos = 1;
+        int end = regEx.length() - 1;
+        StringBuilder literal = new StringBuilder();
+        while (pos < end && regEx.charAt(pos) >= '0' && regEx.charAt(pos) <= '9')
+        {
+            literal.append(regEx.charAt(pos));
+            pos += 1;
+        }
+
+        if (!literal.toString().equals(applicationIdentifier))
+        {
+            return null;
+        }
+
+        List<long[]> segments = new ArrayList<>();
+        int depth = 0;
+        while (pos < end)
+        {
+            char temp = regEx.charAt(pos);
+            long[] mask;
+            if (temp == '(')
+            {
+                depth += 1;
+                pos += 1;
+                continue;
+            }
+            else if (temp == ')')
+            {
+                depth -= 1;
+                pos += 1;
+                continue;
+            }
+            else if (temp == '\\' && pos + 1 < end && regEx.charAt(pos + 1) == 'd')
+            {
+                mask = new long[]{0x03FF000000000000L, 0};
+                pos += 2;
+            }
+            else if (temp == '[')
+            {
+                int close = regEx.indexOf(']', pos);
+                if (close < 0)
+                {
+                    return null;
+                }
+                mask = parseClass(regEx.substring(pos + 1, close));
+                if (mask == null)
+                {
+                    return null;
+                }
+                pos = close + 1;
+            }
+            else
+            {
+                return null;
+            }
+
+            int min = 1;
+            int max = 1;
+            if (pos < end && regEx.charAt(pos) == '{')
+            {
+                int close = regEx.indexOf('}', pos);
+                if (close < 0)
+                {
+                    return null;
+                }
+                String[] bounds = regEx.substring(pos + 1, close).split(",", -1);
+                try
+                {
+                    min = Integer.parseInt(bounds[0]);
+                    max = bounds.length > 1 ? Integer.parseInt(bounds[1]) : min;
+                }
+                catch (NumberFormatException e)
+                {
+                    return null;
+                }
+                if (bounds.length > 2 || max < min)
+                {
+                    return null;
+                }
+                pos = close + 1;
+            }
+            segments.add(new long[]{mask[0], mask[1], min, max});
+        }
+
+        if (depth != 0 || segments.isEmpty())
+        {
+            return null;
+        }
+        return segments;
+    }
+
+    private static long[] parseClass(String cls)
+    {
+        long[] mask = new long[2];
+        int pos = 0;
+        while (pos < cls.length())
+        {
+            int from = parseClassChar(cls, pos);
+            if (from < 0)
+            {
+                return null;
+            }
+            pos += cls.charAt(pos) == '\\' ? 4 : 1;
+
+            int to = from;
+            if (pos + 1 < cls.length() && cls.charAt(pos) == '-')
+            {
+                to = parseClassChar(cls, pos + 1);
+                if (to < from)
+                {
+                    return null;
+                }
+                pos += cls.charAt(pos + 1) == '\\' ? 5 : 2;
+            }
+
+            for (int c = from; c <= to; c++)
+            {
+                mask[c >>> 6] |= 1L << (c & 63);
+            }
+        }
+        return mask;
+    }
+
+    private static int parseClassChar(String cls, int pos)
+    {
+        char temp = cls.charAt(pos);
+        if (temp == '\\')
+        {
+            if (pos + 4 > cls.length() || cls.charAt(pos + 1) != 'x')
+            {
+                return -1;
+            }
+            try
+            {
+                // the class masks cover ASCII only, \x80-\xFF takes the regex fallback
+                int value = Integer.parseInt(cls.substring(pos + 2, pos + 4), 16);
+                return value < 128 ? value : -1;
+            }
+            catch (NumberFormatException e)
+            {
+                return -1;
+            }
+        }
+        if (temp == '^' || temp == '[' || temp >= 128)
+        {
+            return -1;
+        }
+        return temp;
+    }
+}
@@ -0,0 +1,314 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Gs1DecodeCache
+{
+    // Size-bounded cache of decode outcomes keyed by the raw code bytes, for labels that are scanned
+    // again and again. Results are immutable Gs1Results shared by all callers, failed decodes are cached
+    // with their Gs1Exception. The cache is split into stripes, each one an access-ordered LinkedHashMap
+    // (LRU) behind its own lock. A lookup hashes the bytes into a probe key owned by the stripe, so a hit
+    // allocates nothing. Codes are decoded outside of the lock. Entries remember the dictionary they were
+    // decoded with, after Gs1DataFields.setDictionary the old entries count as misses and are replaced.
+
+    private static final class Key
+    {
+        byte[] array;
+        int offset;
+        int length;
+        int hash;
+
+        Key set(byte[] array, int offset, int length, int hash)
+        {
+            this.array = array;
+            this.offset = offset;
+            this.length = length;
+            this.hash = hash;
+            return this;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof Key))
+            {
+                return false;
+            }
+            Key key = (Key) other;
+            if (key.hash != this.hash || key.length != this.length)
+            {
+                return false;
+            }
+            for (int i = 0; i < this.length; i++)
+            {
+                if (this.array[this.offset + i] != key.array[key.offset + i])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class CacheEntry
+    {
+        final Gs1DataFields.Field_ListRoot dictionary;
+        final Gs1Result result;
+        final Gs1Decoder.Gs1Exception error;
+
+        CacheEntry(Gs1DataFields.Field_ListRoot dictionary, Gs1Result result, Gs1Decoder.Gs1Exception error)
+        {
+            this.dictionary = dictionary;
+            this.result = result;
+            this.error = error;
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<Key, CacheEntry>
+    {
+        private static final long serialVersionUID = 2871440915374862147L;
+        final int capacity;
+        final Key probe = new Key();
+        long hits;
+        long misses;
+        long evictions;
+
+        Stripe(int capacity)
+        {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CacheEntry> eldest)
+        {
+            if (size() > this.capacity)
+            {
+                this.evictions += 1;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Scratch
+    {
+        final Gs1Decoder decoder = new Gs1Decoder();
+        byte[] array = new byte[256];
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final boolean checkDigits;
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>()
+    {
+        @Override
+        protected Scratch initialValue()
+        {
+            Scratch result = new Scratch();
+            result.decoder.setCheckDigits(checkDigits);
+            return result;
+        }
+    };
+
+    public Gs1DecodeCache(int maxEntries)
+    {
+        this(maxEntries, false);
+    }
+
+    public Gs1DecodeCache(int maxEntries, boolean checkDigits)
+    {
+        if (maxEntries <= 0)
+        {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        int count = Integer.highestOneBit(Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 2, Math.min(16, maxEntries))));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++)
+        {
+            // the stripes share maxEntries, the first ones take the remainder
+            this.stripes[i] = new Stripe(maxEntries / count + (i < maxEntries % count ? 1 : 0));
+        }
+        this.stripeMask = count - 1;
+        this.checkDigits = checkDigits;
+    }
+
+    private static int hash(byte[] array, int offset, int length)
+    {
+        int result = 1;
+        for (int i = offset; i < offset + length; i++)
+        {
+            result = 31 * result + array[i];
+        }
+        return result ^ (result >>> 16);
+    }
+
+    // returns the shared result, null for codes without GS1 prefix
+    public Gs1Result decode(byte[] code, int offset, int length) throws Gs1Decoder.Gs1Exception
+    {
+        if (offset < 0 || length < 0 || offset > code.length - length)
+        {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + code.length);
+        }
+        int hash = hash(code, offset, length);
+        Stripe stripe = this.stripes[hash & this.stripeMask];
+        Gs1DataFields.Field_ListRoot dictionary = Gs1DataFields.getDictionary();
+        CacheEntry entry;
+        synchronized (stripe)
+        {
+            entry = stripe.get(stripe.probe.set(code, offset, length, hash));
+            stripe.probe.set(null, 0, 0, 0);
+            if (entry != null && entry.dictionary != dictionary)
+            {
+                entry = null;
+            }
+            if (entry != null)
+            {
+                stripe.hits += 1;
+            }
+            else
+            {
+                stripe.misses += 1;
+            }
+        }
+
+        if (entry == null)
+        {
+            entry = decodeEntry(code, offset, length);
+            Key key = new Key().set(Arrays.copyOfRange(code, offset, offset + length), 0, length, hash);
+            synchronized (stripe)
+            {
+                stripe.put(key, entry);
+            }
+        }
+
+        if (entry.error != null)
+        {
+            throw entry.error;
+        }
+        return entry.result;
+    }
+
+    public Gs1Result decode(CharSequence code) throws Gs1Decoder.Gs1Exception
+    {
+        Scratch temp_scratch = this.scratch.get();
+        if (temp_scratch.array.length < code.length())
+        {
+            temp_scratch.array = new byte[Math.max(code.length(), temp_scratch.array.length * 2)];
+        }
+        return decode(temp_scratch.array, 0, Gs1DataBuffer.copyChars(code, temp_scratch.array));
+    }
+
+    // the position of code is not changed
+    public Gs1Result decode(ByteBuffer code) throws Gs1Decoder.Gs1Exception
+    {
+        if (code.hasArray())
+        {
+            return decode(code.array(), code.arrayOffset() + code.position(), code.remaining());
+        }
+        Scratch temp_scratch = this.scratch.get();
+        if (temp_scratch.array.length < code.remaining())
+        {
+            temp_scratch.array = new byte[Math.max(code.remaining(), temp_scratch.array.length * 2)];
+        }
+        int length = code.remaining();
+        Gs1DataBuffer.copyBytes(code, temp_scratch.array);
+        return decode(temp_scratch.array, 0, length);
+    }
+
+    private CacheEntry decodeEntry(byte[] code, int offset, int length)
+    {
+        Gs1Decoder decoder = this.scratch.get().decoder;
+        try
+        {
+            int status = decoder.tryDecodeInto(code, offset, length);
+            // the decoder picks up the live dictionary itself, the entry is tagged with the one it used
+            return new CacheEntry(decoder.getIndex().getDictionary(), status == Gs1Decoder.STATUS_OK ? decoder.toResult() : null, decoder.getError());
+        }
+        finally
+        {
+            decoder.reset();
+        }
+    }
+
+    public int size()
+    {
+        int result = 0;
+        for (Stripe stripe : this.stripes)
+        {
+            synchronized (stripe)
+            {
+                result += stripe.size();
+            }
+        }
+        return result;
+    }
+
+    public void clear()
+    {
+        for (Stripe stripe : this.stripes)
+        {
+            synchronized (stripe)
+            {
+                stripe.clear();
+            }
+        }
+    }
+
+    public long getHitCount()
+    {
+        long result = 0;
+        for (Stripe stripe : this.stripes)
+        {
+            synchronized (stripe)
+            {
+                result += stripe.hits;
+            }
+        }
+        return result;
+    }
+
+    public long getMissCount()
+    {
+        long result = 0;
+        for (Stripe stripe : this.stripes)
+        {
+            synchronized (stripe)
+            {
+                result += stripe.misses;
+            }
+        }
+        return result;
+    }
+
+    public long getEvictionCount()
+    {
+        long result = 0;
+        for (Stripe stripe : this.stripes)
+        {
+            synchronized (stripe)
+            {
+                result += stripe.evictions;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        long hits = getHitCount();
+        long misses = getMissCount();
+        return String.format("%d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                             size(), hits, misses, hits + misses > 0 ? hits * 100.0 / (hits + misses) : 0.0, getEvictionCount());
+    }
+}
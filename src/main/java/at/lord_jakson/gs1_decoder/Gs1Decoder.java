@@ -1,19 +1,21 @@
 package at.lord_jakson.gs1_decoder;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class Gs1Decoder implements Iterable<Gs1Decoder.Gs1Item>
 {
     public static final char GS = 29;
     public static final char PC = '%';
 
-    private enum Gs1Decoder_CodeType
+    // tryDecode results, failures use the Gs1Exception codes
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_NO_GS1_CODE = -1;
+
+    public enum Gs1Decoder_CodeType
     {
-        NONE(0), GS(1), PC(2), BRACKET_ROUND(3), BRACKET_SQUARE(4);
+        NONE(0), GS(1), PC(2), BRACKET_ROUND(3), BRACKET_SQUARE(4), DIGITAL_LINK(5);
 
         private final int value;
 
@@ -28,21 +30,22 @@ public class Gs1Decoder implements Iterable<Gs1Decoder.Gs1Item>
         }
     }
 
-    private static class Gs1Data_Item
+    // AIM symbology identifiers of the GS1 symbologies, the identifier stands for the FNC1 in first
+    // position and the element string follows directly, with GS between the fields
+    public enum Gs1Decoder_Symbology
     {
-        public final String applicationIdentifier;
-        public final String title;
-        public final String regEx;
-        public final int decimal;
-        public final int dataLen;
+        NONE(""), GS1_128("]C1"), GS1_DATABAR("]e0"), GS1_DATAMATRIX("]d2"), GS1_QR("]Q3"), GS1_DOTCODE("]J1");
 
-        public Gs1Data_Item(String applicationIdentifier, String title, String regEx, int decimal, int dataLen)
+        private final String identifier;
+
+        Gs1Decoder_Symbology(String identifier)
         {
-            this.applicationIdentifier = applicationIdentifier;
-            this.title = title;
-            this.regEx = regEx;
-            this.decimal = decimal;
-            this.dataLen = dataLen;
+            this.identifier = identifier;
+        }
+
+        public String getIdentifier()
+        {
+            return identifier;
         }
     }
 
@@ -50,6 +53,7 @@ public class Gs1Decoder implements Iterable<Gs1Decoder.Gs1Item>
     {
         private static final long serialVersionUID = -1743475467298083833L;
         private final int code;
+        private final String data;
 
         public static final int UNKNOWN_APPLICATION_IDENTIFIER = 1;
         public static final int INVALID_APPLICATION_IDENTIFIER = 2;
@@ -78,14 +82,27 @@ public class Gs1Decoder implements Iterable<Gs1Decoder.Gs1Item>
 
         public Gs1Exception(int errorCode, String data)
         {
-            super(generateErrorMessage(errorCode, data));
+            // thrown for every malformed code: no stack trace, the message is only built on request
+            super(null, null, false, false);
             this.code = errorCode;
+            this.data = data;
         }
 
         public int getCode()
         {
             return this.code;
         }
+
+        public String getData()
+        {
+            return this.data;
+        }
+
+        @Override
+        public String getMessage()
+        {
+            return generateErrorMessage(this.code, this.data);
+        }
     }
 
     public static class Gs1Item
@@ -119,13 +136,13 @@ public class Gs1Decoder implements Iterable<Gs1Decoder.Gs1Item>
             @Override
             public boolean hasNext()
             {
-                return currentIndex < items.size() && items.get(currentIndex) != null;
+                return currentIndex < elementCount;
             }
 
             @Override
             public Gs1Item next()
             {
-                return items.get(currentIndex++);
+                return getItem(currentIndex++);
             }
 
             @Override
@@ -139,18 +156,105 @@ public class Gs1Decoder implements Iterable<Gs1Decoder.Gs1Item>
 
     private Gs1DataBuffer buffer;
     private Gs1Decoder_CodeType codeType;
-    private final List<Gs1Item> items;
-    private static final Pattern pattern_numeric = Pattern.compile("^\\d+$");
+    private Gs1Decoder_Symbology symbology;
+    private char groupSeparator = GS;
+    private final Gs1DataBuffer reuseBuffer;
+    private Gs1Element[] elements;
+    private Gs1Item[] items;
+    private int elementCount;
+    private int status;
+    private final Gs1Element scratch = new Gs1Element();
+    private final Gs1DataSlice errorAi = new Gs1DataSlice();
+    private Gs1ElementIndex index = new Gs1ElementIndex();
+    private Gs1AiSet selection;
+    // the selection bound to the dictionary of the current decode, getSelection returns the one that was set
+    private Gs1AiSet decodeSelection;
+    private boolean checkDigits;
+    private final Gs1Visitor collector = new Gs1Visitor()
+    {
+        @Override
+        public boolean visit(Gs1Element element)
+        {
+            Gs1Element temp_element = nextElement();
+            temp_element.copyFrom(element);
+            index.add(temp_element, elementCount);
+            elementCount += 1;
+            // in selective mode the decode stops once every selected AI was found
+            return decodeSelection == null || !index.containsAll(decodeSelection);
+        }
+    };
 
     public Gs1Decoder()
     {
-        this.items = new ArrayList<>();
+        this.reuseBuffer = new Gs1DataBuffer();
+        this.elements = new Gs1Element[8];
+        this.items = new Gs1Item[8];
+        this.elementCount = 0;
     }
 
+    // Reads the code prefix: an AIM symbology identifier of a GS1 symbology, the GS or % prefix, the
+    // first bracket or the scheme and host of a Digital Link URI. The buffer is left at the first AI
+    // (the path of a URI), the prefix is skipped without a copy.
     public static Gs1Decoder_CodeType getCodeType(Gs1DataBuffer buffer)
     {
+        return getCodeType(buffer, GS);
+    }
+
+    // for scanners that send the FNC1 as another byte than GS, groupSeparator is used as prefix and field separator
+    public static Gs1Decoder_CodeType getCodeType(Gs1DataBuffer buffer, char groupSeparator)
+    {
+        return readCodeType(buffer, readSymbology(buffer), groupSeparator);
+    }
+
+    // Reads an AIM symbology identifier of a GS1 symbology, the buffer is only advanced if there is one.
+    public static Gs1Decoder_Symbology readSymbology(Gs1DataBuffer buffer)
+    {
+        byte[] array = buffer.getArray();
+        int pos = buffer.getArrayPos();
+        if (buffer.getArrayEnd() - pos < 3 || array[pos] != ']')
+        {
+            return Gs1Decoder_Symbology.NONE;
+        }
+
+        Gs1Decoder_Symbology result = Gs1Decoder_Symbology.NONE;
+        char modifier = (char) array[pos + 2];
+        switch (array[pos + 1])
+        {
+            case 'C':
+                result = modifier == '1' ? Gs1Decoder_Symbology.GS1_128 : result;
+                break;
+            case 'e':
+                result = modifier == '0' ? Gs1Decoder_Symbology.GS1_DATABAR : result;
+                break;
+            case 'd':
+                result = modifier == '2' ? Gs1Decoder_Symbology.GS1_DATAMATRIX : result;
+                break;
+            case 'Q':
+                result = modifier == '3' ? Gs1Decoder_Symbology.GS1_QR : result;
+                break;
+            case 'J':
+                result = modifier == '1' ? Gs1Decoder_Symbology.GS1_DOTCODE : result;
+                break;
+        }
+        if (result != Gs1Decoder_Symbology.NONE)
+        {
+            buffer.seek(pos + 3);
+        }
+        return result;
+    }
+
+    static Gs1Decoder_CodeType readCodeType(Gs1DataBuffer buffer, Gs1Decoder_Symbology symbology, char groupSeparator)
+    {
+        if (symbology != Gs1Decoder_Symbology.NONE)
+        {
+            return Gs1Decoder_CodeType.GS;
+        }
+        if (Gs1DigitalLink.readAuthority(buffer))
+        {
+            return Gs1Decoder_CodeType.DIGITAL_LINK;
+        }
         char temp = buffer.readChar();
-        if (temp == GS)
+        if (temp == groupSeparator)
         {
             return Gs1Decoder_CodeType.GS;
         }
@@ -176,199 +280,615 @@ public class Gs1Decoder implements Iterable<Gs1Decoder.Gs1Item>
         return getCodeType(buffer);
     }
 
-    private static boolean isNumeric(String strNum)
-    {
-        if (strNum == null)
-        {
-            return false;
-        }
-        return pattern_numeric.matcher(strNum).matches();
-    }
-
-    private static boolean isNumeric(char charNum)
+    static boolean isNumeric(char charNum)
     {
         return charNum >= 48 && charNum <= 57;
     }
 
-    private Gs1Data_Item readApplicationIdentifier_Var() throws Gs1Exception
+    private static int identifierStatus(Gs1DataSlice ai)
     {
-        Gs1DataFields.Field_Result temp_item = Gs1DataFields.root.findItem(buffer);
-        String ai = temp_item.data;
-        if (temp_item.fieldResult != null && temp_item.fieldResult.valueType() == Gs1DataField_Type.GS_ITEM)
+        for (int i = 0; i < ai.length(); i++)
         {
-            Gs1DataFields.Field_Item item = (Gs1DataFields.Field_Item) temp_item.fieldResult;
-            ai = item.applicationIdentifier;
-            int decimals = 0;
-
-            if (item.getVarDec())
+            if (!isNumeric(ai.charAt(i)))
             {
-                char temp_char = buffer.readChar();
-                ai += temp_char;
-
-                if (isNumeric(temp_char))
-                {
-                    decimals = temp_char - 48;
-                }
+                return Gs1Exception.INVALID_APPLICATION_IDENTIFIER;
             }
-
-            return new Gs1Data_Item(ai, item.title, item.regEx, decimals, item.getDataLen());
         }
+        return ai.length() > 0 ? Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER : Gs1Exception.INVALID_APPLICATION_IDENTIFIER;
+    }
 
-        if (!isNumeric(ai))
+    // The AI readers return a status and leave the AI text (with the decimal digit) in aiSlice.
+
+    private static int readApplicationIdentifier_Var(Gs1DataBuffer buffer, Gs1DataFields.Field_ListRoot dictionary, Gs1Element element, Gs1DataSlice aiSlice)
+    {
+        int ai_pos = buffer.getArrayPos();
+        Gs1DataFields.Field_Item item = dictionary.lookup(buffer);
+        if (item == null)
         {
-            throw new Gs1Exception(Gs1Exception.INVALID_APPLICATION_IDENTIFIER, ai);
+            aiSlice.set(buffer.getArray(), ai_pos, buffer.getArrayPos() - ai_pos);
+            return identifierStatus(aiSlice);
         }
 
-        throw new Gs1Exception(Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER, ai);
+        char temp_char = 0;
+        if (item.getVarDec())
+        {
+            temp_char = buffer.readChar();
+        }
+        aiSlice.set(buffer.getArray(), ai_pos, buffer.getArrayPos() - ai_pos);
+        element.field = item;
+        element.decimalChar = temp_char;
+        return STATUS_OK;
     }
 
-    private Gs1Data_Item readApplicationIdentifier_Until(char endBracket) throws Gs1Exception
+    private static int readApplicationIdentifier_Until(Gs1DataBuffer buffer, Gs1DataFields.Field_ListRoot dictionary, Gs1Element element, Gs1DataSlice aiSlice, char endBracket)
     {
-        String ai = buffer.readDataVar(endBracket);
-        Gs1DataFields.Field_Result temp_item = Gs1DataFields.root.findItem(ai);
-        if (temp_item.fieldResult != null && temp_item.fieldResult.valueType() == Gs1DataField_Type.GS_ITEM)
+        int ai_pos = buffer.getArrayPos();
+        int ai_end = ai_pos + buffer.readSpanVar(endBracket);
+        aiSlice.set(buffer.getArray(), ai_pos, ai_end - ai_pos);
+        Gs1DataFields.Field_Item item = dictionary.lookup(buffer.getArray(), ai_pos, ai_end);
+        if (item == null)
         {
-            Gs1DataFields.Field_Item item = (Gs1DataFields.Field_Item) temp_item.fieldResult;
-            ai = item.applicationIdentifier;
-            int decimals = 0;
-
-            if (item.getVarDec())
-            {
-                if (temp_item.data == null || temp_item.data.isEmpty())
-                {
-                    throw new Gs1Exception(Gs1Exception.INVALID_APPLICATION_IDENTIFIER, ai);
-                }
-
-                char temp_char = temp_item.data.charAt(0);
-                ai += temp_char;
-
-                if (isNumeric(temp_char))
-                {
-                    decimals = temp_char - 48;
-                }
-            }
-
-            return new Gs1Data_Item(ai, item.title, item.regEx, decimals, item.getDataLen());
+            return identifierStatus(aiSlice);
         }
 
-        if (!isNumeric(ai))
+        char temp_char = 0;
+        if (item.getVarDec())
         {
-            throw new Gs1Exception(Gs1Exception.INVALID_APPLICATION_IDENTIFIER, ai);
+            int decimal_pos = ai_pos + item.applicationIdentifier.length();
+            if (decimal_pos >= ai_end)
+            {
+                return Gs1Exception.INVALID_APPLICATION_IDENTIFIER;
+            }
+            temp_char = (char) (buffer.getArray()[decimal_pos] & 0xFF);
         }
-
-        throw new Gs1Exception(Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER, ai);
+        element.field = item;
+        element.decimalChar = temp_char;
+        return STATUS_OK;
     }
 
-    private Gs1Data_Item readApplicationIdentifier() throws Gs1Exception
+    private static int readApplicationIdentifier(Gs1DataBuffer buffer, Gs1DataFields.Field_ListRoot dictionary, Gs1Decoder_CodeType codeType, Gs1Element element, Gs1DataSlice aiSlice)
     {
         switch (codeType)
         {
             case GS:
             case PC:
-                return readApplicationIdentifier_Var();
+                return readApplicationIdentifier_Var(buffer, dictionary, element, aiSlice);
             case BRACKET_ROUND:
-                return readApplicationIdentifier_Until(')');
+                return readApplicationIdentifier_Until(buffer, dictionary, element, aiSlice, ')');
             case BRACKET_SQUARE:
-                return readApplicationIdentifier_Until(']');
+                return readApplicationIdentifier_Until(buffer, dictionary, element, aiSlice, ']');
+        }
+        aiSlice.set(buffer.getArray(), buffer.getArrayPos(), 0);
+        return Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER;
+    }
+
+    static Gs1Exception exception(int status, Gs1Element element, Gs1DataSlice aiSlice)
+    {
+        if (status == Gs1Exception.INVALID_DECIMAL)
+        {
+            return new Gs1Exception(status, Integer.toString(element.decimals));
         }
-        return null;
+        return new Gs1Exception(status, aiSlice.toString());
     }
 
-    private String readData(int dataLen)
+    private static int readData(Gs1DataBuffer buffer, Gs1Decoder_CodeType codeType, char groupSeparator, int dataLen, boolean gs1Chars)
     {
         switch (codeType)
         {
             case GS:
-                return dataLen <= 0 ? buffer.readDataVar(GS) : buffer.readDataFix(dataLen);
+                return dataLen <= 0 ? buffer.readSpanVar(groupSeparator, gs1Chars) : buffer.readSpanFix(dataLen);
             case PC:
-                return dataLen <= 0 ? buffer.readDataVar(PC) : buffer.readDataFix(dataLen);
+                return dataLen <= 0 ? buffer.readSpanVar(PC, gs1Chars) : buffer.readSpanFix(dataLen);
             case BRACKET_ROUND:
-                return buffer.readDataVar('(');
+                return buffer.readSpanVar('(', gs1Chars);
             case BRACKET_SQUARE:
-                return buffer.readDataVar('[');
+                return buffer.readSpanVar('[', gs1Chars);
         }
-        return null;
+        return 0;
     }
 
     public Gs1Decoder decodeCode(String code) throws Gs1Exception
     {
-        buffer = new Gs1DataBuffer(code);
-        codeType = getCodeType(buffer);
-        if (codeType != Gs1Decoder_CodeType.NONE)
+        return decodeCode(new Gs1DataBuffer(code));
+    }
+
+    public Gs1Decoder decodeCode(CharSequence code) throws Gs1Exception
+    {
+        return decodeCode(new Gs1DataBuffer(code));
+    }
+
+    public Gs1Decoder decodeCode(byte[] code, int offset, int length) throws Gs1Exception
+    {
+        return decodeCode(new Gs1DataBuffer(code, offset, length));
+    }
+
+    public Gs1Decoder decodeCode(ByteBuffer code) throws Gs1Exception
+    {
+        return decodeCode(new Gs1DataBuffer(code));
+    }
+
+    // Reuse mode: decodeInto drops the previous result and decodes into the element slots and buffer
+    // owned by this decoder. After warm-up no objects are allocated for valid codes. Elements returned
+    // by an earlier decode are overwritten, and byte[] input must not change while the result is used.
+
+    public Gs1Decoder reset()
+    {
+        for (int i = 0; i < elementCount; i++)
         {
-            while (buffer.notEod())
-            {
-                Gs1Data_Item ai_field = readApplicationIdentifier();
-                if (ai_field != null)
-                {
-                    String data = readData(ai_field.dataLen);
-                    String error = null;
-                    if (data == null)
-                    {
-                        throw new Gs1Exception(Gs1Exception.INVALID_DATA, "[" + ai_field.applicationIdentifier + "]");
-                    }
-
-                    Matcher matcher = Pattern.compile(ai_field.regEx).matcher(ai_field.applicationIdentifier + data);
-                    if (!matcher.matches())
-                    {
-                        error = "Invalid Data: [" + ai_field.applicationIdentifier + "]" + data;
-                    }
-
-                    if (ai_field.decimal > 0)
-                    {
-                        if (ai_field.decimal < data.length())
-                        {
-                            data = new StringBuffer(data).insert(data.length() - ai_field.decimal, ".").toString();
-                        }
-                        else
-                        {
-                            throw new Gs1Exception(Gs1Exception.INVALID_DECIMAL, "" + ai_field.decimal);
-                        }
-                    }
-                    items.add(new Gs1Item(ai_field.applicationIdentifier, ai_field.title, data, error));
-                }
-                else
-                {
-                    throw new Gs1Exception(Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER, "");
-                }
-            }
-            return this;
+            items[i] = null;
         }
-        return null;
+        index.clear(elements, elementCount);
+        elementCount = 0;
+        status = STATUS_OK;
+        buffer = null;
+        codeType = null;
+        symbology = null;
+        return this;
     }
 
-    public int size()
+    public Gs1Decoder decodeInto(byte[] code, int offset, int length) throws Gs1Exception
     {
-        return items.size();
+        reset();
+        return decodeCode(reuseBuffer.reset(code, offset, length));
     }
 
-    public Gs1Item getItem(int index)
+    public Gs1Decoder decodeInto(ByteBuffer code) throws Gs1Exception
     {
-        return items.get(index);
+        reset();
+        return decodeCode(reuseBuffer.reset(code));
     }
 
-    public Gs1Item getItemByAi(String applicationIdentifier)
+    public Gs1Decoder decodeInto(CharSequence code) throws Gs1Exception
+    {
+        reset();
+        return decodeCode(reuseBuffer.reset(code));
+    }
+
+    private Gs1Element nextElement()
+    {
+        if (elementCount == elements.length)
+        {
+            elements = Arrays.copyOf(elements, elementCount * 2);
+            items = Arrays.copyOf(items, elementCount * 2);
+        }
+        Gs1Element element = elements[elementCount];
+        if (element == null)
+        {
+            element = new Gs1Element();
+            elements[elementCount] = element;
+        }
+        return element;
+    }
+
+    public Gs1Decoder decodeCode(Gs1DataBuffer code) throws Gs1Exception
+    {
+        int result = tryDecode(code);
+        if (result > 0)
+        {
+            throw exception(result, scratch, errorAi);
+        }
+        return result == STATUS_OK ? this : null;
+    }
+
+    // Non-throwing decode for input where malformed codes are common. Returns STATUS_OK,
+    // STATUS_NO_GS1_CODE or the Gs1Exception code of the failure, elements read before a failure are kept.
+
+    public int tryDecode(Gs1DataBuffer code)
     {
-        for (Gs1Item item : items)
+        Gs1DataFields.Field_ListRoot dictionary = index.getDictionary();
+        if (elementCount == 0 && dictionary != Gs1DataFields.getDictionary())
         {
-            if (item.applicationIdentifier.equals(applicationIdentifier))
+            // a swapped dictionary is picked up between codes, codes decoded without reset stay on the one of the first
+            dictionary = Gs1DataFields.getDictionary();
+            index = new Gs1ElementIndex(dictionary);
+        }
+        decodeSelection = selection != null ? selection.forDictionary(dictionary) : null;
+        buffer = code;
+        symbology = readSymbology(code);
+        codeType = readCodeType(code, symbology, groupSeparator);
+        status = decode(code, dictionary, codeType, groupSeparator, scratch, errorAi, decodeSelection, checkDigits, collector);
+        return status;
+    }
+
+    public int tryDecodeInto(byte[] code, int offset, int length)
+    {
+        reset();
+        return tryDecode(reuseBuffer.reset(code, offset, length));
+    }
+
+    public int tryDecodeInto(ByteBuffer code)
+    {
+        reset();
+        return tryDecode(reuseBuffer.reset(code));
+    }
+
+    public int tryDecodeInto(CharSequence code)
+    {
+        reset();
+        return tryDecode(reuseBuffer.reset(code));
+    }
+
+    public int getStatus()
+    {
+        return status;
+    }
+
+    // offset of the failing AI relative to the start of the input, -1 without failure
+    public int getErrorPosition()
+    {
+        return status > 0 ? errorAi.getOffset() - buffer.getArrayOffset() : -1;
+    }
+
+    // text of the failing AI, only valid until the next decode, null without failure
+    public Gs1DataSlice getErrorApplicationIdentifier()
+    {
+        return status > 0 ? errorAi : null;
+    }
+
+    // the failure of the last decode as exception, null without failure
+    public Gs1Exception getError()
+    {
+        return status > 0 ? exception(status, scratch, errorAi) : null;
+    }
+
+    // Selective mode: only the AIs of the set are validated and collected, the other elements are
+    // only read up to their end, and the decode stops when all selected AIs were found. null decodes all.
+
+    public Gs1Decoder setSelection(Gs1AiSet wanted)
+    {
+        selection = wanted;
+        decodeSelection = wanted;
+        return this;
+    }
+
+    public Gs1AiSet getSelection()
+    {
+        return selection;
+    }
+
+    // Check digit stage: elements of AIs with a check digit (Field_Item.checkDigitLength) that pass the
+    // format check are also verified by the mod-10 check, a mismatch marks the element invalid.
+
+    public Gs1Decoder setCheckDigits(boolean enabled)
+    {
+        checkDigits = enabled;
+        return this;
+    }
+
+    public boolean getCheckDigits()
+    {
+        return checkDigits;
+    }
+
+    // Group separator: the byte the scanner sends for FNC1, GS by default. It is the prefix of
+    // GS codes and the separator after variable-length fields, also after an AIM identifier.
+
+    public Gs1Decoder setGroupSeparator(char separator)
+    {
+        groupSeparator = checkGroupSeparator(separator);
+        return this;
+    }
+
+    public char getGroupSeparator()
+    {
+        return groupSeparator;
+    }
+
+    static char checkGroupSeparator(char separator)
+    {
+        if (separator > 255 || isNumeric(separator) || separator == '(' || separator == '[')
+        {
+            throw new IllegalArgumentException("Invalid group separator " + (int) separator);
+        }
+        return separator;
+    }
+
+    public Gs1Decoder_CodeType getDecodedCodeType()
+    {
+        return codeType;
+    }
+
+    // AIM symbology of the last decode, NONE for codes without identifier
+    public Gs1Decoder_Symbology getSymbology()
+    {
+        return symbology;
+    }
+
+    public Gs1Result toResult()
+    {
+        if (codeType == null || codeType == Gs1Decoder_CodeType.NONE)
+        {
+            return null;
+        }
+        return new Gs1Result(codeType, symbology, this);
+    }
+
+    // Thread-safe facade: decodes with a decoder owned by the calling thread and returns an immutable
+    // result, or null if the code has no GS1 prefix. The calling code needs no Gs1Decoder instance.
+
+    private static final ThreadLocal<Gs1Decoder> threadDecoder = new ThreadLocal<Gs1Decoder>()
+    {
+        @Override
+        protected Gs1Decoder initialValue()
+        {
+            return new Gs1Decoder();
+        }
+    };
+
+    public static Gs1Result decode(CharSequence code) throws Gs1Exception
+    {
+        Gs1Decoder decoder = threadDecoder.get();
+        try
+        {
+            return decoder.decodeInto(code) != null ? decoder.toResult() : null;
+        }
+        finally
+        {
+            decoder.reset();
+        }
+    }
+
+    public static Gs1Result decode(byte[] code, int offset, int length) throws Gs1Exception
+    {
+        Gs1Decoder decoder = threadDecoder.get();
+        try
+        {
+            return decoder.decodeInto(code, offset, length) != null ? decoder.toResult() : null;
+        }
+        finally
+        {
+            decoder.reset();
+        }
+    }
+
+    public static Gs1Result decode(ByteBuffer code) throws Gs1Exception
+    {
+        Gs1Decoder decoder = threadDecoder.get();
+        try
+        {
+            return decoder.decodeInto(code) != null ? decoder.toResult() : null;
+        }
+        finally
+        {
+            decoder.reset();
+        }
+    }
+
+    public static Gs1Result decode(CharSequence code, Gs1AiSet wanted) throws Gs1Exception
+    {
+        Gs1Decoder decoder = threadDecoder.get();
+        try
+        {
+            decoder.setSelection(wanted);
+            return decoder.decodeInto(code) != null ? decoder.toResult() : null;
+        }
+        finally
+        {
+            decoder.setSelection(null);
+            decoder.reset();
+        }
+    }
+
+    // Streaming mode: the visitor gets every element as soon as it is read, without building Gs1Items.
+    // Returns false if the code has no GS1 prefix.
+
+    public static boolean decode(CharSequence code, Gs1Visitor visitor) throws Gs1Exception
+    {
+        return decode(new Gs1DataBuffer(code), visitor);
+    }
+
+    public static boolean decode(byte[] code, int offset, int length, Gs1Visitor visitor) throws Gs1Exception
+    {
+        return decode(new Gs1DataBuffer(code, offset, length), visitor);
+    }
+
+    public static boolean decode(ByteBuffer code, Gs1Visitor visitor) throws Gs1Exception
+    {
+        return decode(new Gs1DataBuffer(code), visitor);
+    }
+
+    public static boolean decode(Gs1DataBuffer code, Gs1Visitor visitor) throws Gs1Exception
+    {
+        Gs1Element element = new Gs1Element();
+        Gs1DataSlice aiSlice = new Gs1DataSlice();
+        int result = decode(code, Gs1DataFields.getDictionary(), getCodeType(code), GS, element, aiSlice, null, false, visitor);
+        if (result > 0)
+        {
+            throw exception(result, element, aiSlice);
+        }
+        return result == STATUS_OK;
+    }
+
+    // streaming decode into caller-owned scratch objects, returns the status like tryDecode
+    static int decode(Gs1DataBuffer code, Gs1Element element, Gs1DataSlice aiSlice, Gs1Visitor visitor)
+    {
+        return decode(code, Gs1DataFields.getDictionary(), element, aiSlice, visitor);
+    }
+
+    static int decode(Gs1DataBuffer code, Gs1DataFields.Field_ListRoot dictionary, Gs1Element element, Gs1DataSlice aiSlice, Gs1Visitor visitor)
+    {
+        return decode(code, dictionary, getCodeType(code), GS, element, aiSlice, null, false, visitor);
+    }
+
+    private static volatile Gs1DecoderMetrics metrics;
+
+    // installs the instrumentation used by all decodes, null disables it
+    public static void setMetrics(Gs1DecoderMetrics decoderMetrics)
+    {
+        metrics = decoderMetrics;
+    }
+
+    public static Gs1DecoderMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    private static int decode(Gs1DataBuffer buffer, Gs1DataFields.Field_ListRoot dictionary, Gs1Decoder_CodeType codeType, char groupSeparator, Gs1Element element, Gs1DataSlice aiSlice, Gs1AiSet selection, boolean checkDigits, Gs1Visitor visitor)
+    {
+        Gs1DecoderMetrics decoderMetrics = metrics;
+        if (decoderMetrics == null)
+        {
+            return decodeLoop(buffer, dictionary, codeType, groupSeparator, element, aiSlice, selection, checkDigits, visitor, null);
+        }
+
+        long start_time = System.nanoTime();
+        try
+        {
+            int result = decodeLoop(buffer, dictionary, codeType, groupSeparator, element, aiSlice, selection, checkDigits, visitor, decoderMetrics);
+            if (result > 0)
             {
-                return item;
+                decoderMetrics.recordException(result);
             }
+            return result;
+        }
+        finally
+        {
+            decoderMetrics.recordDecode(codeType, System.nanoTime() - start_time);
         }
-        return null;
     }
 
-    public Gs1Item getItemByTitle(String title)
+    private static int decodeLoop(Gs1DataBuffer buffer, Gs1DataFields.Field_ListRoot dictionary, Gs1Decoder_CodeType codeType, char groupSeparator, Gs1Element element, Gs1DataSlice aiSlice, Gs1AiSet selection, boolean checkDigits, Gs1Visitor visitor, Gs1DecoderMetrics decoderMetrics)
     {
-        for (Gs1Item item : items)
+        if (codeType == Gs1Decoder_CodeType.NONE)
         {
-            if (item.title.equals(title))
+            return STATUS_NO_GS1_CODE;
+        }
+        if (codeType == Gs1Decoder_CodeType.DIGITAL_LINK)
+        {
+            return Gs1DigitalLink.decode(buffer, dictionary, element, aiSlice, selection, checkDigits, visitor, decoderMetrics);
+        }
+
+        while (buffer.notEod())
+        {
+            int result = decodeElement(buffer, dictionary, codeType, groupSeparator, element, aiSlice, selection, checkDigits, decoderMetrics);
+            if (result != STATUS_OK)
             {
-                return item;
+                return result;
             }
+            if ((selection == null || selection.contains(element.field)) && !visitor.visit(element))
+            {
+                break;
+            }
+        }
+        return STATUS_OK;
+    }
+
+    // Reads the element at the buffer position into element, validation is skipped for AIs outside of
+    // the selection. Shared with the push decoder, which calls it once the element is complete.
+    static int decodeElement(Gs1DataBuffer buffer, Gs1DataFields.Field_ListRoot dictionary, Gs1Decoder_CodeType codeType, char groupSeparator, Gs1Element element, Gs1DataSlice aiSlice, Gs1AiSet selection, boolean checkDigits, Gs1DecoderMetrics decoderMetrics)
+    {
+        int result = readApplicationIdentifier(buffer, dictionary, codeType, element, aiSlice);
+        if (result != STATUS_OK)
+        {
+            return result;
+        }
+
+        Gs1DataFields.Field_Item ai_field = element.field;
+        int decimals = isNumeric(element.decimalChar) ? element.decimalChar - 48 : 0;
+        // the GS1 char check of the search only pays off when the validator runs and can skip its own
+        boolean gs1_chars = (selection == null || selection.contains(ai_field)) && ai_field.validator.hasGs1Segments();
+        int data_pos = buffer.getArrayPos();
+        int data_len = readData(buffer, codeType, groupSeparator, ai_field.getDataLen(), gs1_chars);
+        element.set(ai_field, element.decimalChar, decimals, buffer.getArray(), buffer.getArrayOffset(), data_pos, data_len);
+        return checkElement(element, selection, checkDigits, decoderMetrics, buffer.isSpanGs1Chars());
+    }
+
+    // validates the data of an element that was set, AIs outside of the selection are not validated;
+    // gs1Chars if the data is known to hold only GS1 chars, see Gs1DataValidator.isValid
+    static int checkElement(Gs1Element element, Gs1AiSet selection, boolean checkDigits, Gs1DecoderMetrics decoderMetrics, boolean gs1Chars)
+    {
+        Gs1DataFields.Field_Item ai_field = element.field;
+        Gs1DataSlice data = element.data;
+        if (selection == null || selection.contains(ai_field))
+        {
+            element.valid = ai_field.validator.isValid(data.getArray(), element.decimalChar, data.getOffset(), data.length(), gs1Chars);
+            if (checkDigits && element.valid && ai_field.checkDigitLength > 0)
+            {
+                element.checkDigitValid = Gs1DataValidator.isCheckDigitValid(data.getArray(), data.getOffset(), ai_field.checkDigitLength);
+                element.valid = element.checkDigitValid;
+            }
+            if (decoderMetrics != null)
+            {
+                decoderMetrics.recordElement(ai_field, element.valid);
+            }
+        }
+
+        if (element.decimals > 0 && element.decimals >= data.length())
+        {
+            return Gs1Exception.INVALID_DECIMAL;
+        }
+        return STATUS_OK;
+    }
+
+    public int size()
+    {
+        return elementCount;
+    }
+
+    public Gs1Item getItem(int index)
+    {
+        Gs1Item item = items[checkIndex(index)];
+        if (item == null)
+        {
+            item = elements[index].toItem();
+            items[index] = item;
         }
-        return null;
+        return item;
+    }
+
+    public Gs1Element getElement(int index)
+    {
+        return elements[checkIndex(index)];
+    }
+
+    Gs1Element[] getElements()
+    {
+        return elements;
+    }
+
+    private int checkIndex(int index)
+    {
+        if (index < 0 || index >= elementCount)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elementCount);
+        }
+        return index;
+    }
+
+    // AI and title queries use the index filled during decode and return the first matching element
+
+    public Gs1Item getItemByAi(String applicationIdentifier)
+    {
+        int temp_index = index.indexOf(applicationIdentifier, elements, elementCount);
+        return temp_index >= 0 ? getItem(temp_index) : null;
+    }
+
+    public Gs1Item getItemByTitle(String title)
+    {
+        int temp_index = index.indexOfTitle(title);
+        return temp_index >= 0 ? getItem(temp_index) : null;
+    }
+
+    public Gs1Element getElementByAi(String applicationIdentifier)
+    {
+        int temp_index = index.indexOf(applicationIdentifier, elements, elementCount);
+        return temp_index >= 0 ? elements[temp_index] : null;
+    }
+
+    public Gs1Element getElementByTitle(String title)
+    {
+        int temp_index = index.indexOfTitle(title);
+        return temp_index >= 0 ? elements[temp_index] : null;
+    }
+
+    public boolean has(String applicationIdentifier)
+    {
+        return index.indexOf(applicationIdentifier, elements, elementCount) >= 0;
+    }
+
+    public Gs1ElementIndex getIndex()
+    {
+        return index;
     }
 
     @Override
@@ -376,7 +896,7 @@ public class Gs1Decoder implements Iterable<Gs1Decoder.Gs1Item>
     {
         StringBuilder strBuilder = new StringBuilder();
 
-        for (Gs1Item item : items)
+        for (Gs1Item item : this)
         {
             strBuilder.append(item.toString()).append("\n");
         }
@@ -0,0 +1,236 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class Gs1DecoderMetrics
+{
+    // Optional decode instrumentation, installed with Gs1Decoder.setMetrics. Without an installed
+    // instance the decoder only reads one static field per decode.
+    // All counters are striped by thread to keep worker threads from contending on the same counters,
+    // a snapshot sums the stripes. A stripe holds the code type counts, the latency buckets, the
+    // exception counts and per AI (keyed by Field_Item.ordinal) the decoded and the invalid count.
+
+    // bucket i counts [2^i, 2^(i+1)) ns, the last one everything from 2^62 ns
+    public static final int LATENCY_BUCKETS = 63;
+    private static final int EXCEPTION_CODES = 8;
+    private static final int CODE_TYPES = Gs1Decoder.Gs1Decoder_CodeType.values().length;
+    private static final int LATENCY_BASE = CODE_TYPES;
+    private static final int EXCEPTION_BASE = LATENCY_BASE + LATENCY_BUCKETS;
+    private static final int AI_BASE = EXCEPTION_BASE + EXCEPTION_CODES;
+
+    private final Gs1DataFields.Field_ListRoot dictionary;
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+    private final int itemCount;
+
+    public Gs1DecoderMetrics()
+    {
+        this(Gs1DataFields.getDictionary());
+    }
+
+    public Gs1DecoderMetrics(Gs1DataFields.Field_ListRoot dictionary)
+    {
+        this.dictionary = dictionary;
+        this.itemCount = dictionary.getItemCount();
+
+        int stripes = Integer.highestOneBit(Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 16)) * 2 - 1);
+        this.stripeMask = stripes - 1;
+        this.stripes = new AtomicLongArray[stripes];
+        for (int i = 0; i < stripes; i++)
+        {
+            this.stripes[i] = new AtomicLongArray(AI_BASE + this.itemCount * 2);
+        }
+    }
+
+    private AtomicLongArray stripe()
+    {
+        return this.stripes[(int) Thread.currentThread().getId() & this.stripeMask];
+    }
+
+    static int latencyBucket(long nanos)
+    {
+        return nanos <= 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(nanos) - 1, LATENCY_BUCKETS - 1);
+    }
+
+    void recordElement(Gs1DataFields.Field_Item field, boolean valid)
+    {
+        if (field.getDictionary() != this.dictionary)
+        {
+            // decoded with a newer dictionary (Gs1DataFields.setDictionary), counted under the same AI
+            field = this.dictionary.find(field.applicationIdentifier);
+            if (field == null)
+            {
+                return;
+            }
+        }
+        int ordinal = field.ordinal;
+        if (ordinal >= 0 && ordinal < this.itemCount)
+        {
+            AtomicLongArray counters = stripe();
+            counters.incrementAndGet(AI_BASE + ordinal * 2);
+            if (!valid)
+            {
+                counters.incrementAndGet(AI_BASE + ordinal * 2 + 1);
+            }
+        }
+    }
+
+    void recordDecode(Gs1Decoder.Gs1Decoder_CodeType codeType, long nanos)
+    {
+        AtomicLongArray counters = stripe();
+        counters.incrementAndGet(codeType.ordinal());
+        counters.incrementAndGet(LATENCY_BASE + latencyBucket(nanos));
+    }
+
+    void recordException(int code)
+    {
+        stripe().incrementAndGet(EXCEPTION_BASE + Math.max(0, Math.min(code, EXCEPTION_CODES - 1)));
+    }
+
+    public Snapshot snapshot()
+    {
+        return new Snapshot(this);
+    }
+
+    public static final class Snapshot
+    {
+        private final Gs1DataFields.Field_ListRoot dictionary;
+        private final long[] codeTypeCounts;
+        private final long[] exceptionCounts;
+        private final long[] latencyBuckets;
+        private final long[] aiCounts;
+        private final long[] aiInvalidCounts;
+
+        private Snapshot(Gs1DecoderMetrics metrics)
+        {
+            this.dictionary = metrics.dictionary;
+            this.codeTypeCounts = new long[CODE_TYPES];
+            this.latencyBuckets = new long[LATENCY_BUCKETS];
+            this.exceptionCounts = new long[EXCEPTION_CODES];
+            this.aiCounts = new long[metrics.itemCount];
+            this.aiInvalidCounts = new long[metrics.itemCount];
+            for (AtomicLongArray counters : metrics.stripes)
+            {
+                addTo(this.codeTypeCounts, counters, 0);
+                addTo(this.latencyBuckets, counters, LATENCY_BASE);
+                addTo(this.exceptionCounts, counters, EXCEPTION_BASE);
+                for (int i = 0; i < metrics.itemCount; i++)
+                {
+                    this.aiCounts[i] += counters.get(AI_BASE + i * 2);
+                    this.aiInvalidCounts[i] += counters.get(AI_BASE + i * 2 + 1);
+                }
+            }
+        }
+
+        private static void addTo(long[] sums, AtomicLongArray counters, int base)
+        {
+            for (int i = 0; i < sums.length; i++)
+            {
+                sums[i] += counters.get(base + i);
+            }
+        }
+
+        public long getDecodes()
+        {
+            long total = 0;
+            for (long count : this.codeTypeCounts)
+            {
+                total += count;
+            }
+            return total;
+        }
+
+        public long getDecodes(Gs1Decoder.Gs1Decoder_CodeType codeType)
+        {
+            return this.codeTypeCounts[codeType.ordinal()];
+        }
+
+        public long getAiCount(int ordinal)
+        {
+            return this.aiCounts[ordinal];
+        }
+
+        public long getAiInvalidCount(int ordinal)
+        {
+            return this.aiInvalidCounts[ordinal];
+        }
+
+        public long getValidationFailures()
+        {
+            long total = 0;
+            for (long count : this.aiInvalidCounts)
+            {
+                total += count;
+            }
+            return total;
+        }
+
+        // exception counts by Gs1Exception code
+        public long getExceptions(int code)
+        {
+            return code >= 0 && code < this.exceptionCounts.length ? this.exceptionCounts[code] : 0;
+        }
+
+        // bucket i counts decodes that took [2^i, 2^(i+1)) ns, the last one those from 2^62 ns
+        public long getLatencyBucket(int bucket)
+        {
+            return this.latencyBuckets[bucket];
+        }
+
+        // upper bound in ns of the bucket that contains the given quantile (0..1)
+        public long getLatencyQuantile(double quantile)
+        {
+            long total = 0;
+            for (long count : this.latencyBuckets)
+            {
+                total += count;
+            }
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < this.latencyBuckets.length; i++)
+            {
+                seen += this.latencyBuckets[i];
+                if (seen >= rank && seen > 0)
+                {
+                    return i == LATENCY_BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                }
+            }
+            return 0;
+        }
+
+        // one "name value" line per non-zero counter
+        @Override
+        public String toString()
+        {
+            StringBuilder strBuilder = new StringBuilder();
+            for (Gs1Decoder.Gs1Decoder_CodeType codeType : Gs1Decoder.Gs1Decoder_CodeType.values())
+            {
+                appendLine(strBuilder, "decodes." + codeType.name(), this.codeTypeCounts[codeType.ordinal()]);
+            }
+            for (int i = 0; i < this.exceptionCounts.length; i++)
+            {
+                appendLine(strBuilder, "exceptions." + i, this.exceptionCounts[i]);
+            }
+            for (int i = 0; i < this.aiCounts.length; i++)
+            {
+                String ai = this.dictionary.getItemByOrdinal(i).applicationIdentifier;
+                appendLine(strBuilder, "ai." + ai, this.aiCounts[i]);
+                appendLine(strBuilder, "ai." + ai + ".invalid", this.aiInvalidCounts[i]);
+            }
+            for (int i = 0; i < LATENCY_BUCKETS - 1; i++)
+            {
+                appendLine(strBuilder, "latency.le_" + ((1L << (i + 1)) - 1) + "ns", this.latencyBuckets[i]);
+            }
+            appendLine(strBuilder, "latency.ge_" + (1L << (LATENCY_BUCKETS - 1)) + "ns", this.latencyBuckets[LATENCY_BUCKETS - 1]);
+            return strBuilder.toString();
+        }
+
+        private static void appendLine(StringBuilder strBuilder, String name, long value)
+        {
+            if (value != 0)
+            {
+                strBuilder.append(name).append(' ').append(value).append('\n');
+            }
+        }
+    }
+}
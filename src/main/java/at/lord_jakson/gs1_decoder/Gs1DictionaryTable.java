@@ -0,0 +1,203 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class Gs1DictionaryTable
+{
+    // Parsed form of the AI table text (src/main/dictionary/gs1-ai-table.txt), one AI per line:
+    //   <ai> <length> <flags> <title> <format>
+    // The groups of the AI trie are derived from the AIs: every proper prefix of an AI with at least
+    // two digits is a group, and the outermost group whose AIs all share a data length or the decimal
+    // flag carries it. The build generates Gs1DataFieldsTable from this (so it only uses Gs1DataValidator),
+    // Gs1DataFields.loadDictionary compiles it at runtime.
+
+    static final String VALID_CHARS = "[\\x21-\\x22\\x25-\\x2F\\x30-\\x39\\x3A-\\x3F\\x41-\\x5A\\x5F\\x61-\\x7A]";
+    // x21-x22 = ! "
+    // x25-x2F = % & ' ( ) * + , - . /
+    // x30-x39 = 0 1 2 3 4 5 6 7 8 9
+    // x3A-x3F = : ; < = > ?
+    // x41-x5A = A-Z
+    // x5F     = _
+    // x61-x7A = a-z
+
+    final String[] applicationIdentifiers;
+    final String[] titles;
+    final int[] dataLens;
+    final boolean[] varDecs;
+    final String[] regExs;
+
+    final String[] listPaths;
+    final int[] listDataLens;
+    final boolean[] listVarDecs;
+
+    private Gs1DictionaryTable(List<String[]> rows)
+    {
+        int count = rows.size();
+        this.applicationIdentifiers = new String[count];
+        this.titles = new String[count];
+        this.dataLens = new int[count];
+        this.varDecs = new boolean[count];
+        this.regExs = new String[count];
+        for (int i = 0; i < count; i++)
+        {
+            String[] row = rows.get(i);
+            this.applicationIdentifiers[i] = row[0];
+            this.dataLens[i] = Integer.parseInt(row[1]);
+            this.varDecs[i] = row[2].equals("d");
+            this.titles[i] = row[3];
+            this.regExs[i] = row[4].replace("{X}", VALID_CHARS);
+        }
+
+        List<String> paths = new ArrayList<>();
+        for (String ai : this.applicationIdentifiers)
+        {
+            for (int len = 2; len < ai.length(); len++)
+            {
+                String path = ai.substring(0, len);
+                if (!paths.contains(path))
+                {
+                    paths.add(path);
+                }
+            }
+        }
+        this.listPaths = paths.toArray(new String[paths.size()]);
+        this.listDataLens = new int[this.listPaths.length];
+        this.listVarDecs = new boolean[this.listPaths.length];
+        for (int i = 0; i < this.listPaths.length; i++)
+        {
+            String path = this.listPaths[i];
+            int parent = paths.indexOf(path.substring(0, path.length() - 1));
+            int data_len = -1;
+            boolean var_dec = true;
+            for (int j = 0; j < count; j++)
+            {
+                if (this.applicationIdentifiers[j].startsWith(path))
+                {
+                    data_len = data_len < 0 || data_len == this.dataLens[j] ? this.dataLens[j] : 0;
+                    var_dec &= this.varDecs[j];
+                }
+            }
+            // inner groups inherit, only the outermost one carries the value
+            this.listDataLens[i] = parent >= 0 && this.listDataLens[parent] > 0 ? 0 : data_len;
+            this.listVarDecs[i] = var_dec && !(parent >= 0 && this.listVarDecs[parent]);
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            if (this.varDecs[i] != inheritsVarDec(this.applicationIdentifiers[i]))
+            {
+                throw new IllegalArgumentException("AI " + this.applicationIdentifiers[i] + ": the decimal flag has to be set for all AIs of the group");
+            }
+        }
+    }
+
+    private boolean inheritsVarDec(String applicationIdentifier)
+    {
+        for (int i = 0; i < this.listPaths.length; i++)
+        {
+            if (this.listVarDecs[i] && applicationIdentifier.startsWith(this.listPaths[i]))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size()
+    {
+        return this.applicationIdentifiers.length;
+    }
+
+    // key of the generated AI resolver, the length keeps "01" and "001" apart
+    static int aiKey(int length, int aiCode)
+    {
+        return length * 100000 + aiCode;
+    }
+
+    static Gs1DictionaryTable parse(BufferedReader reader) throws IOException
+    {
+        List<String[]> rows = new ArrayList<>();
+        Map<String, Integer> lines = new HashMap<>();
+        Map<String, String> prefixes = new HashMap<>();
+        int line_no = 0;
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            line_no += 1;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+            {
+                continue;
+            }
+
+            String[] row = new String[5];
+            int pos = 0;
+            for (int i = 0; i < 4; i++)
+            {
+                int end = pos;
+                while (end < line.length() && !Character.isWhitespace(line.charAt(end)))
+                {
+                    end += 1;
+                }
+                row[i] = line.substring(pos, end);
+                pos = end;
+                while (pos < line.length() && Character.isWhitespace(line.charAt(pos)))
+                {
+                    pos += 1;
+                }
+            }
+            row[4] = line.substring(pos);
+            if (row[4].isEmpty())
+            {
+                throw new IllegalArgumentException("Line " + line_no + ": expected <ai> <length> <flags> <title> <format>");
+            }
+            if (!isDigits(row[0], 2, 4) || !isDigits(row[1], 1, 3))
+            {
+                throw new IllegalArgumentException("Line " + line_no + ": invalid AI or length");
+            }
+            if (!row[2].equals("-") && !row[2].equals("d"))
+            {
+                throw new IllegalArgumentException("Line " + line_no + ": unknown flags '" + row[2] + "'");
+            }
+
+            // no AI may be a prefix of another one, the trie could not hold both
+            String other = prefixes.get(row[0]);
+            for (int len = 2; len <= row[0].length() && other == null; len++)
+            {
+                other = lines.containsKey(row[0].substring(0, len)) ? row[0].substring(0, len) : null;
+            }
+            if (other != null)
+            {
+                throw new IllegalArgumentException("Line " + line_no + ": AI " + row[0] + " collides with AI " + other + " in line " + lines.get(other));
+            }
+            for (int len = 2; len < row[0].length(); len++)
+            {
+                prefixes.put(row[0].substring(0, len), row[0]);
+            }
+            lines.put(row[0], line_no);
+            rows.add(row);
+        }
+        return new Gs1DictionaryTable(rows);
+    }
+
+    private static boolean isDigits(String value, int minLen, int maxLen)
+    {
+        if (value.length() < minLen || value.length() > maxLen)
+        {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++)
+        {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9')
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
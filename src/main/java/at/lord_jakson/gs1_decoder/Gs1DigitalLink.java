@@ -0,0 +1,226 @@
+package at.lord_jakson.gs1_decoder;
+
+final class Gs1DigitalLink
+{
+    // GS1 Digital Link URIs (https://id.gs1.org/01/09506000134352/10/ABC?17=201225) for the decoder.
+    // The URI bytes are scanned without a copy: the AI part of the path is the longest run of
+    // /key/value pairs at its end whose keys are dictionary AIs (var-decimal AIs with the decimal digit),
+    // anything in front of it is a prefix path of the resolver. Query parameters with numeric keys are
+    // AIs too, other parameters and the fragment are ignored. Values are used where they are unless they
+    // contain percent escapes, those are decoded into the escape array of the buffer, at the same offset
+    // the value has in the input (an unescaped value is never longer), so the values do not overlap.
+    // A URI without AIs in its path is no GS1 code.
+
+    private Gs1DigitalLink()
+    {
+    }
+
+    private static int lower(int value)
+    {
+        return value >= 'A' && value <= 'Z' ? value + 32 : value;
+    }
+
+    // Reads "http://" or "https://" and the host, the buffer is left at the path. Returns false and
+    // does not move the buffer for other input.
+    static boolean readAuthority(Gs1DataBuffer buffer)
+    {
+        byte[] array = buffer.getArray();
+        int pos = buffer.getArrayPos();
+        int end = buffer.getArrayEnd();
+        if (end - pos < 7 || lower(array[pos]) != 'h')
+        {
+            return false;
+        }
+        if (lower(array[pos + 1]) != 't' || lower(array[pos + 2]) != 't' || lower(array[pos + 3]) != 'p')
+        {
+            return false;
+        }
+        pos += 4;
+        if (lower(array[pos]) == 's')
+        {
+            pos += 1;
+        }
+        if (end - pos < 3 || array[pos] != ':' || array[pos + 1] != '/' || array[pos + 2] != '/')
+        {
+            return false;
+        }
+        pos += 3;
+        while (pos < end && array[pos] != '/' && array[pos] != '?' && array[pos] != '#')
+        {
+            pos += 1;
+        }
+        buffer.seek(pos);
+        return true;
+    }
+
+    private static int indexOf(byte[] array, int from, int end, char value)
+    {
+        return Gs1DataBuffer.indexOf(array, from, end, (byte) value);
+    }
+
+    private static int lastIndexOf(byte[] array, int start, int end, char value)
+    {
+        int pos = end - 1;
+        while (pos >= start && array[pos] != value)
+        {
+            pos -= 1;
+        }
+        return pos;
+    }
+
+    private static boolean isDigits(byte[] array, int start, int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if (!Gs1Decoder.isNumeric((char) array[i]))
+            {
+                return false;
+            }
+        }
+        return end - start >= 2;
+    }
+
+    // the dictionary item if array[start..end) is exactly one AI
+    private static Gs1DataFields.Field_Item lookup(Gs1DataFields.Field_ListRoot dictionary, byte[] array, int start, int end)
+    {
+        if (!isDigits(array, start, end))
+        {
+            return null;
+        }
+        Gs1DataFields.Field_Item item = dictionary.lookup(array, start, end);
+        if (item == null || end - start != item.applicationIdentifier.length() + (item.getVarDec() ? 1 : 0))
+        {
+            return null;
+        }
+        return item;
+    }
+
+    static int decode(Gs1DataBuffer buffer, Gs1DataFields.Field_ListRoot dictionary, Gs1Element element, Gs1DataSlice aiSlice, Gs1AiSet selection, boolean checkDigits, Gs1Visitor visitor, Gs1DecoderMetrics decoderMetrics)
+    {
+        byte[] array = buffer.getArray();
+        int path_start = buffer.getArrayPos();
+        int end = buffer.getArrayEnd();
+        int fragment_pos = indexOf(array, path_start, end, '#');
+        int query_pos = indexOf(array, path_start, fragment_pos, '?');
+        int path_end = query_pos;
+        if (path_end > path_start && array[path_end - 1] == '/')
+        {
+            path_end -= 1;
+        }
+
+        // walk the /key/value pairs back from the end of the path
+        int ai_start = path_end;
+        int segment_end = path_end;
+        while (true)
+        {
+            int value_slash = lastIndexOf(array, path_start, segment_end, '/');
+            int key_slash = value_slash > path_start ? lastIndexOf(array, path_start, value_slash, '/') : -1;
+            if (key_slash < path_start || lookup(dictionary, array, key_slash + 1, value_slash) == null)
+            {
+                break;
+            }
+            ai_start = key_slash;
+            segment_end = key_slash;
+        }
+        aiSlice.set(array, path_start, 0);
+        if (ai_start == path_end)
+        {
+            buffer.seek(end);
+            return Gs1Decoder.STATUS_NO_GS1_CODE;
+        }
+
+        int pos = ai_start;
+        while (pos < path_end)
+        {
+            int key_start = pos + 1;
+            int value_start = indexOf(array, key_start, path_end, '/') + 1;
+            int value_end = indexOf(array, value_start, path_end, '/');
+            int result = element(buffer, dictionary, key_start, value_start, value_end, element, aiSlice, selection, checkDigits, decoderMetrics);
+            if (result != Gs1Decoder.STATUS_OK)
+            {
+                return result;
+            }
+            if ((selection == null || selection.contains(element.field)) && !visitor.visit(element))
+            {
+                return Gs1Decoder.STATUS_OK;
+            }
+            pos = value_end;
+        }
+
+        pos = query_pos + 1;
+        while (pos < fragment_pos)
+        {
+            int parameter_end = indexOf(array, pos, fragment_pos, '&');
+            int value_start = indexOf(array, pos, parameter_end, '=') + 1;
+            if (value_start <= parameter_end && isDigits(array, pos, value_start - 1))
+            {
+                int result = element(buffer, dictionary, pos, value_start, parameter_end, element, aiSlice, selection, checkDigits, decoderMetrics);
+                if (result != Gs1Decoder.STATUS_OK)
+                {
+                    return result;
+                }
+                if ((selection == null || selection.contains(element.field)) && !visitor.visit(element))
+                {
+                    return Gs1Decoder.STATUS_OK;
+                }
+            }
+            pos = parameter_end + 1;
+        }
+        buffer.seek(end);
+        return Gs1Decoder.STATUS_OK;
+    }
+
+    private static int hex(int value)
+    {
+        if (value >= '0' && value <= '9')
+        {
+            return value - '0';
+        }
+        value = lower(value);
+        return value >= 'a' && value <= 'f' ? value - 'a' + 10 : -1;
+    }
+
+    // key is array[keyStart..valueStart - 1), the separator in between is skipped
+    private static int element(Gs1DataBuffer buffer, Gs1DataFields.Field_ListRoot dictionary, int keyStart, int valueStart, int valueEnd, Gs1Element element, Gs1DataSlice aiSlice, Gs1AiSet selection, boolean checkDigits, Gs1DecoderMetrics decoderMetrics)
+    {
+        byte[] array = buffer.getArray();
+        aiSlice.set(array, keyStart, valueStart - 1 - keyStart);
+        Gs1DataFields.Field_Item item = lookup(dictionary, array, keyStart, valueStart - 1);
+        if (item == null)
+        {
+            return Gs1Decoder.Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER;
+        }
+        char decimal_char = item.getVarDec() ? (char) array[valueStart - 2] : 0;
+        int decimals = decimal_char != 0 ? decimal_char - '0' : 0;
+
+        int escape_pos = indexOf(array, valueStart, valueEnd, '%');
+        if (escape_pos >= valueEnd)
+        {
+            element.set(item, decimal_char, decimals, array, buffer.getArrayOffset(), valueStart, valueEnd - valueStart);
+        }
+        else
+        {
+            byte[] target = buffer.escapeBuffer(buffer.getArrayEnd() - buffer.getArrayOffset());
+            int data_start = valueStart - buffer.getArrayOffset();
+            int target_pos = data_start;
+            for (int i = valueStart; i < valueEnd; i++)
+            {
+                int value = array[i];
+                if (value == '%')
+                {
+                    int high = i + 2 < valueEnd ? hex(array[i + 1]) : -1;
+                    int low = high >= 0 ? hex(array[i + 2]) : -1;
+                    if (low < 0)
+                    {
+                        return Gs1Decoder.Gs1Exception.INVALID_DATA;
+                    }
+                    value = high << 4 | low;
+                    i += 2;
+                }
+                target[target_pos++] = (byte) value;
+            }
+            element.set(item, decimal_char, decimals, target, 0, data_start, target_pos - data_start);
+        }
+        return Gs1Decoder.checkElement(element, selection, checkDigits, decoderMetrics, false);
+    }
+}
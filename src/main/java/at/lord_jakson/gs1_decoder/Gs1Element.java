@@ -0,0 +1,272 @@
+package at.lord_jakson.gs1_decoder;
+
+public class Gs1Element
+{
+    // One decoded element string as a view into the decoded buffer, Strings are built on request only
+
+    Gs1DataFields.Field_Item field;
+    char decimalChar;
+    int decimals;
+    int dataOffset;
+    boolean valid;
+    boolean checkDigitValid;
+    final Gs1DataSlice data;
+
+    public Gs1Element()
+    {
+        this.data = new Gs1DataSlice();
+    }
+
+    void set(Gs1DataFields.Field_Item field, char decimalChar, int decimals, byte[] array, int arrayStart, int dataPos, int dataLen)
+    {
+        this.field = field;
+        this.decimalChar = decimalChar;
+        this.decimals = decimals;
+        this.dataOffset = dataPos - arrayStart;
+        this.data.set(array, dataPos, dataLen);
+        this.valid = false;
+        this.checkDigitValid = true;
+    }
+
+    void copyFrom(Gs1Element other)
+    {
+        this.field = other.field;
+        this.decimalChar = other.decimalChar;
+        this.decimals = other.decimals;
+        this.dataOffset = other.dataOffset;
+        this.data.set(other.data.getArray(), other.data.getOffset(), other.data.length());
+        this.valid = other.valid;
+        this.checkDigitValid = other.checkDigitValid;
+    }
+
+    public Gs1DataFields.Field_Item getField()
+    {
+        return this.field;
+    }
+
+    // numeric code of the dictionary AI, for var-decimal AIs without the decimal digit (see getDecimals)
+    public int getAiCode()
+    {
+        return this.field.aiCode;
+    }
+
+    public String getApplicationIdentifier()
+    {
+        return this.field.getApplicationIdentifier(this.decimalChar);
+    }
+
+    public String getTitle()
+    {
+        return this.field.title;
+    }
+
+    public Gs1DataSlice getData()
+    {
+        return this.data;
+    }
+
+    // offset of the data relative to the start of the decoded input
+    public int getDataOffset()
+    {
+        return this.dataOffset;
+    }
+
+    public int getDataLength()
+    {
+        return this.data.length();
+    }
+
+    public int getDecimals()
+    {
+        return this.decimals;
+    }
+
+    public boolean isValid()
+    {
+        return this.valid;
+    }
+
+    // false only if the decoder checked the check digit and it did not match
+    public boolean isCheckDigitValid()
+    {
+        return this.checkDigitValid;
+    }
+
+    public String getError()
+    {
+        if (this.valid)
+        {
+            return null;
+        }
+        if (!this.checkDigitValid)
+        {
+            return "Invalid Check Digit: [" + getApplicationIdentifier() + "]" + this.data;
+        }
+        return "Invalid Data: [" + getApplicationIdentifier() + "]" + this.data;
+    }
+
+    // data with the decimal point inserted for var-decimal items
+    public String getValue()
+    {
+        int data_len = this.data.length();
+        if (this.decimals > 0 && this.decimals < data_len)
+        {
+            int point_pos = data_len - this.decimals;
+            char[] chars = new char[data_len + 1];
+            for (int i = 0; i < data_len; i++)
+            {
+                chars[i < point_pos ? i : i + 1] = this.data.charAt(i);
+            }
+            chars[point_pos] = '.';
+            return new String(chars);
+        }
+        return this.data.toString();
+    }
+
+    // Typed accessors, computed from the data bytes without allocation. They throw a
+    // NumberFormatException if the data does not hold the digits they read.
+
+    private long parseDigits(int from, int to)
+    {
+        if (from >= to || to > this.data.length() || to - from > 18)
+        {
+            throw new NumberFormatException("No number in [" + getApplicationIdentifier() + "]" + this.data);
+        }
+        long result = 0;
+        for (int i = from; i < to; i++)
+        {
+            int digit = this.data.byteAt(i) - '0';
+            if (digit < 0 || digit > 9)
+            {
+                throw new NumberFormatException("No number in [" + getApplicationIdentifier() + "]" + this.data);
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    // 391x/393x carry a 3 digit ISO 4217 currency code in front of the amount
+    boolean hasCurrency()
+    {
+        return this.field.aiCode == 391 || this.field.aiCode == 393;
+    }
+
+    public boolean isNumeric()
+    {
+        int data_len = this.data.length();
+        for (int i = 0; i < data_len; i++)
+        {
+            byte temp_byte = this.data.byteAt(i);
+            if (temp_byte < '0' || temp_byte > '9')
+            {
+                return false;
+            }
+        }
+        return data_len > 0;
+    }
+
+    // whole data as number, e.g. GTIN, SSCC or counts (up to 18 digits)
+    public long getLong()
+    {
+        return parseDigits(0, this.data.length());
+    }
+
+    // value without decimal point, the scale is getDecimals(), for 391x/393x the amount without currency
+    public long getUnscaledValue()
+    {
+        return parseDigits(hasCurrency() ? 3 : 0, this.data.length());
+    }
+
+    // numeric ISO 4217 currency code of 391x/393x, -1 for other AIs
+    public int getCurrencyCode()
+    {
+        return hasCurrency() ? (int) parseDigits(0, 3) : -1;
+    }
+
+    // first 6 digits as packed YYMMDD, e.g. 251231 (also for date-time AIs like 4324 or 7003)
+    public int getDate()
+    {
+        return (int) parseDigits(0, 6);
+    }
+
+    // days since 1970-01-01 of the YYMMDD date, century by the GS1 rule relative to the current year
+    public int getEpochDay()
+    {
+        return getEpochDay(yearOfEpochDay(System.currentTimeMillis() / 86400000L));
+    }
+
+    // The year YY is taken from the century that puts it within -49..+50 years of currentYear,
+    // day 00 stands for the last day of the month.
+    public int getEpochDay(int currentYear)
+    {
+        int date = getDate();
+        int year_yy = date / 10000;
+        int month = date / 100 % 100;
+        int day = date % 100;
+
+        int difference = year_yy - currentYear % 100;
+        int century = currentYear / 100;
+        if (difference >= 51)
+        {
+            century -= 1;
+        }
+        else if (difference <= -50)
+        {
+            century += 1;
+        }
+        int year = century * 100 + year_yy;
+
+        if (month < 1 || month > 12 || day > daysInMonth(year, month))
+        {
+            throw new IllegalArgumentException("Invalid date in [" + getApplicationIdentifier() + "]" + this.data);
+        }
+        if (day == 0)
+        {
+            day = daysInMonth(year, month);
+        }
+        return (int) epochDay(year, month, day);
+    }
+
+    private static int daysInMonth(int year, int month)
+    {
+        if (month == 2)
+        {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // proleptic Gregorian calendar, eras of 400 years starting at March 1st
+    static long epochDay(int year, int month, int day)
+    {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long year_of_era = y - era * 400;
+        long day_of_year = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long day_of_era = year_of_era * 365 + year_of_era / 4 - year_of_era / 100 + day_of_year;
+        return era * 146097 + day_of_era - 719468;
+    }
+
+    static int yearOfEpochDay(long epochDay)
+    {
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long day_of_era = z - era * 146097;
+        long year_of_era = (day_of_era - day_of_era / 1460 + day_of_era / 36524 - day_of_era / 146096) / 365;
+        long day_of_year = day_of_era - (365 * year_of_era + year_of_era / 4 - year_of_era / 100);
+        long month_index = (5 * day_of_year + 2) / 153;
+        return (int) (year_of_era + era * 400 + (month_index >= 10 ? 1 : 0));
+    }
+
+    public Gs1Decoder.Gs1Item toItem()
+    {
+        return new Gs1Decoder.Gs1Item(getApplicationIdentifier(), getTitle(), getValue(), getError());
+    }
+
+    @Override
+    public String toString()
+    {
+        return toItem().toString();
+    }
+}
@@ -0,0 +1,150 @@
+package at.lord_jakson.gs1_decoder;
+
+public class Gs1ElementIndex
+{
+    // Position of the first element per Field_Item ordinal and per title ordinal plus a presence bitset
+    // over the ordinals, so AI and title queries need no scan and no String compare. Entries hold the
+    // element index + 1, 0 means absent. clear only resets the entries of the indexed elements.
+
+    private final Gs1DataFields.Field_ListRoot dictionary;
+    private final int[] byOrdinal;
+    private final int[] byTitle;
+    private final long[] present;
+
+    public Gs1ElementIndex()
+    {
+        this(Gs1DataFields.getDictionary());
+    }
+
+    public Gs1ElementIndex(Gs1DataFields.Field_ListRoot dictionary)
+    {
+        this.dictionary = dictionary;
+        this.byOrdinal = new int[dictionary.getItemCount()];
+        this.byTitle = new int[dictionary.getTitleCount()];
+        this.present = new long[(dictionary.getItemCount() + 63) >>> 6];
+    }
+
+    private boolean indexed(Gs1DataFields.Field_Item field)
+    {
+        return field != null && field.getDictionary() == this.dictionary && field.ordinal < this.byOrdinal.length;
+    }
+
+    public Gs1DataFields.Field_ListRoot getDictionary()
+    {
+        return this.dictionary;
+    }
+
+    void add(Gs1Element element, int index)
+    {
+        Gs1DataFields.Field_Item field = element.field;
+        if (!indexed(field))
+        {
+            return;
+        }
+        if (this.byOrdinal[field.ordinal] == 0)
+        {
+            this.byOrdinal[field.ordinal] = index + 1;
+        }
+        if (this.byTitle[field.titleOrdinal] == 0)
+        {
+            this.byTitle[field.titleOrdinal] = index + 1;
+        }
+        this.present[field.ordinal >>> 6] |= 1L << field.ordinal;
+    }
+
+    void clear(Gs1Element[] elements, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            Gs1DataFields.Field_Item field = elements[i].field;
+            if (indexed(field))
+            {
+                this.byOrdinal[field.ordinal] = 0;
+                this.byTitle[field.titleOrdinal] = 0;
+                this.present[field.ordinal >>> 6] = 0;
+            }
+        }
+    }
+
+    public boolean has(Gs1DataFields.Field_Item field)
+    {
+        return indexed(field) && (this.present[field.ordinal >>> 6] & (1L << field.ordinal)) != 0;
+    }
+
+    // true if every ordinal set in ordinalBits (bit i of word i / 64) was decoded
+    public boolean containsAll(long[] ordinalBits)
+    {
+        for (int i = 0; i < ordinalBits.length; i++)
+        {
+            long word = i < this.present.length ? this.present[i] : 0;
+            if ((ordinalBits[i] & ~word) != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean containsAll(Gs1AiSet wanted)
+    {
+        return containsAll(wanted.forDictionary(this.dictionary).bits);
+    }
+
+    public static long[] ordinalBits(Gs1DataFields.Field_Item... fields)
+    {
+        int max = 0;
+        for (Gs1DataFields.Field_Item field : fields)
+        {
+            max = Math.max(max, field.ordinal + 1);
+        }
+        long[] result = new long[(max + 63) >>> 6];
+        for (Gs1DataFields.Field_Item field : fields)
+        {
+            if (field.ordinal >= 0)
+            {
+                result[field.ordinal >>> 6] |= 1L << field.ordinal;
+            }
+        }
+        return result;
+    }
+
+    // index of the first element with the AI as it appears in the code, -1 if absent
+    int indexOf(String applicationIdentifier, Gs1Element[] elements, int count)
+    {
+        Gs1DataFields.Field_Item item = this.dictionary.lookup(applicationIdentifier);
+        if (!indexed(item))
+        {
+            // not a dictionary AI, e.g. a var-decimal AI with a non-digit decimal char
+            for (int i = 0; i < count; i++)
+            {
+                if (elements[i].getApplicationIdentifier().equals(applicationIdentifier))
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int index = this.byOrdinal[item.ordinal] - 1;
+        if (index < 0 || !item.getVarDec())
+        {
+            return index;
+        }
+        char decimalChar = applicationIdentifier.charAt(applicationIdentifier.length() - 1);
+        for (; index < count; index++)
+        {
+            if (elements[index].field == item && elements[index].decimalChar == decimalChar)
+            {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    // index of the first element with the title, -1 if absent
+    int indexOfTitle(String title)
+    {
+        int titleOrdinal = this.dictionary.getTitleOrdinal(title);
+        return titleOrdinal >= 0 ? this.byTitle[titleOrdinal] - 1 : -1;
+    }
+}
@@ -0,0 +1,264 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class Gs1Encoder
+{
+    // Writes element strings in one of the four code types into a caller-supplied byte[] or ByteBuffer.
+    // GS and % codes start with the separator char and only get a separator after variable-length
+    // fields, fixed-length fields (Field_Item.getDataLen() > 0) are followed directly by the next AI.
+    // Values are checked for the structure only: fixed length for GS/%, ASCII, and no char that would
+    // end the field early. Content is not validated, that is left to the decoder.
+
+    private final Gs1Decoder.Gs1Decoder_CodeType codeType;
+    private final byte separator;
+    private byte[] array_buffer;
+    private int array_start;
+    private int array_end;
+    private int array_pos;
+    private ByteBuffer direct_buffer;
+    private int direct_start;
+    private ByteBuffer target_buffer;
+    private boolean started;
+    private boolean separator_pending;
+
+    public Gs1Encoder(Gs1Decoder.Gs1Decoder_CodeType codeType)
+    {
+        switch (codeType)
+        {
+            case GS:
+                this.separator = (byte) Gs1Decoder.GS;
+                break;
+            case PC:
+                this.separator = (byte) Gs1Decoder.PC;
+                break;
+            case BRACKET_ROUND:
+                this.separator = '(';
+                break;
+            case BRACKET_SQUARE:
+                this.separator = '[';
+                break;
+            default:
+                throw new IllegalArgumentException("No GS1 code type: " + codeType);
+        }
+        this.codeType = codeType;
+        this.array_buffer = new byte[0];
+    }
+
+    public Gs1Decoder.Gs1Decoder_CodeType getCodeType()
+    {
+        return this.codeType;
+    }
+
+    public Gs1Encoder reset(byte[] out, int offset, int length)
+    {
+        if (offset < 0 || length < 0 || offset > out.length - length)
+        {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + out.length);
+        }
+        this.array_buffer = out;
+        this.array_start = offset;
+        this.array_end = offset + length;
+        this.array_pos = offset;
+        this.direct_buffer = null;
+        this.target_buffer = null;
+        this.started = false;
+        this.separator_pending = false;
+        return this;
+    }
+
+    // writes from the buffer position on, finish() moves the position behind the code
+    public Gs1Encoder reset(ByteBuffer out)
+    {
+        if (out.hasArray())
+        {
+            reset(out.array(), out.arrayOffset() + out.position(), out.remaining());
+        }
+        else
+        {
+            reset(this.array_buffer, 0, 0);
+            this.direct_buffer = out;
+            this.direct_start = out.position();
+        }
+        this.target_buffer = out;
+        return this;
+    }
+
+    private void put(int value)
+    {
+        if (this.direct_buffer != null)
+        {
+            this.direct_buffer.put((byte) value);
+            return;
+        }
+        if (this.array_pos >= this.array_end)
+        {
+            throw new BufferOverflowException();
+        }
+        this.array_buffer[this.array_pos++] = (byte) value;
+    }
+
+    private void putData(int value, Gs1DataFields.Field_Item item)
+    {
+        if (value >= 128 || value == (this.separator & 0xFF))
+        {
+            throw new IllegalArgumentException("Invalid char " + value + " in data of AI " + item.applicationIdentifier);
+        }
+        put(value);
+    }
+
+    private void begin()
+    {
+        if (!this.started)
+        {
+            this.started = true;
+            if (this.codeType == Gs1Decoder.Gs1Decoder_CodeType.GS || this.codeType == Gs1Decoder.Gs1Decoder_CodeType.PC)
+            {
+                put(this.separator);
+            }
+        }
+        else if (this.separator_pending)
+        {
+            put(this.separator);
+        }
+    }
+
+    private void putApplicationIdentifier(Gs1DataFields.Field_Item item, char decimalChar)
+    {
+        boolean bracket = this.codeType == Gs1Decoder.Gs1Decoder_CodeType.BRACKET_ROUND || this.codeType == Gs1Decoder.Gs1Decoder_CodeType.BRACKET_SQUARE;
+        if (bracket)
+        {
+            put(this.separator);
+        }
+        String ai = item.applicationIdentifier;
+        for (int i = 0; i < ai.length(); i++)
+        {
+            put(ai.charAt(i));
+        }
+        if (item.getVarDec())
+        {
+            put(decimalChar);
+        }
+        if (bracket)
+        {
+            put(this.codeType == Gs1Decoder.Gs1Decoder_CodeType.BRACKET_ROUND ? ')' : ']');
+        }
+    }
+
+    private void addElement(Gs1DataFields.Field_Item item, char decimalChar, CharSequence data)
+    {
+        int data_len = data.length();
+        int fixed_len = item.getDataLen();
+        boolean bracket = this.codeType == Gs1Decoder.Gs1Decoder_CodeType.BRACKET_ROUND || this.codeType == Gs1Decoder.Gs1Decoder_CodeType.BRACKET_SQUARE;
+        if (!bracket && fixed_len > 0 && data_len != fixed_len)
+        {
+            throw new IllegalArgumentException("AI " + item.applicationIdentifier + " needs " + fixed_len + " chars, got " + data_len);
+        }
+        int decimals = item.getVarDec() && decimalChar >= '0' && decimalChar <= '9' ? decimalChar - '0' : 0;
+        if (decimals > 0 && decimals >= data_len)
+        {
+            throw new IllegalArgumentException("AI " + item.applicationIdentifier + decimalChar + " needs more than " + decimals + " digits, got " + data_len);
+        }
+
+        begin();
+        putApplicationIdentifier(item, decimalChar);
+        if (data instanceof Gs1DataSlice)
+        {
+            Gs1DataSlice slice = (Gs1DataSlice) data;
+            byte[] array = slice.getArray();
+            int offset = slice.getOffset();
+            for (int i = 0; i < data_len; i++)
+            {
+                putData(array[offset + i] & 0xFF, item);
+            }
+        }
+        else
+        {
+            for (int i = 0; i < data_len; i++)
+            {
+                putData(data.charAt(i), item);
+            }
+        }
+        this.separator_pending = !bracket && fixed_len <= 0;
+    }
+
+    // applicationIdentifier as it appears in the code, var-decimal AIs with the decimal digit
+    public Gs1Encoder add(String applicationIdentifier, CharSequence value)
+    {
+        Gs1DataFields.Field_Item item = Gs1DataFields.getDictionary().lookup(applicationIdentifier);
+        if (item == null)
+        {
+            throw new IllegalArgumentException("Unknown ApplicationIdentifier '" + applicationIdentifier + "'");
+        }
+        char decimalChar = item.getVarDec() ? applicationIdentifier.charAt(applicationIdentifier.length() - 1) : 0;
+        addElement(item, decimalChar, value);
+        return this;
+    }
+
+    public Gs1Encoder add(Gs1Element element)
+    {
+        addElement(element.field, element.decimalChar, element.data);
+        return this;
+    }
+
+    public Gs1Encoder addAll(Gs1Decoder decoder)
+    {
+        for (int i = 0; i < decoder.size(); i++)
+        {
+            add(decoder.getElement(i));
+        }
+        return this;
+    }
+
+    public Gs1Encoder addAll(Gs1Result result)
+    {
+        for (int i = 0; i < result.size(); i++)
+        {
+            add(result.getElement(i));
+        }
+        return this;
+    }
+
+    // bytes written since reset
+    public int length()
+    {
+        if (this.direct_buffer != null)
+        {
+            return this.direct_buffer.position() - this.direct_start;
+        }
+        return this.array_pos - this.array_start;
+    }
+
+    // completes the code (an empty GS/% code is the prefix only) and returns its length
+    public int finish()
+    {
+        if (!this.started)
+        {
+            this.started = true;
+            if (this.codeType == Gs1Decoder.Gs1Decoder_CodeType.GS || this.codeType == Gs1Decoder.Gs1Decoder_CodeType.PC)
+            {
+                put(this.separator);
+            }
+        }
+        int length = length();
+        if (this.target_buffer != null && this.direct_buffer == null)
+        {
+            this.target_buffer.position(this.target_buffer.position() + length);
+            this.target_buffer = null;
+        }
+        return length;
+    }
+
+    // code written so far, only for byte[] output
+    @Override
+    public String toString()
+    {
+        if (this.direct_buffer != null)
+        {
+            return super.toString();
+        }
+        return new String(this.array_buffer, this.array_start, this.array_pos - this.array_start, StandardCharsets.US_ASCII);
+    }
+}
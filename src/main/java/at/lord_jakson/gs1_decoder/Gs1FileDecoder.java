@@ -0,0 +1,312 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+public class Gs1FileDecoder
+{
+    // Bulk decoder for newline-delimited scan logs (one raw element string per line, GS as byte 0x1D).
+    // The file is memory-mapped in windows and the lines are decoded into a reused Gs1Decoder, no String
+    // is created per line. Decoding works on byte arrays (slices and validators index into them), so the
+    // mapped bytes are copied in blocks of whole lines with one bulk get and every line of a block is
+    // found and decoded in the copy. Only the end of a block, the last line end in front of it, is searched
+    // in the mapped bytes, backwards and 8 bytes at a time (Gs1DataBuffer.lastIndexOf).
+    // Positions are byte offsets of the line in the file.
+
+    public interface Gs1RecordSink
+    {
+        // the decoder and its elements are only valid during the call
+        void onRecord(long position, Gs1Decoder record) throws IOException;
+
+        // error is null for lines without GS1 prefix, line is only valid during the call
+        void onError(long position, Gs1DataSlice line, Gs1Decoder.Gs1Exception error) throws IOException;
+    }
+
+    public static class Gs1FileStats
+    {
+        public final long records;
+        public final long errors;
+        public final long bytes;
+        public final long elapsedNanos;
+
+        public Gs1FileStats(long records, long errors, long bytes, long elapsedNanos)
+        {
+            this.records = records;
+            this.errors = errors;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double recordsPerSecond()
+        {
+            return this.elapsedNanos > 0 ? (this.records + this.errors) * 1e9 / this.elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d records, %d errors, %d bytes in %.3f s (%.0f records/s)",
+                                 this.records, this.errors, this.bytes, this.elapsedNanos / 1e9, recordsPerSecond());
+        }
+    }
+
+    private static final long MAX_WINDOW = 1L << 30;
+    private static final int BLOCK = 1 << 16;
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private static class ChunkDecoder implements Callable<long[]>
+    {
+        private final FileChannel channel;
+        private final long from;
+        private final long to;
+        private final Gs1RecordSink sink;
+        private final Gs1Decoder decoder;
+        private final Gs1DataSlice line;
+        private byte[] block_buffer;
+        private long records;
+        private long errors;
+
+        ChunkDecoder(FileChannel channel, long from, long to, Gs1RecordSink sink)
+        {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+            this.decoder = new Gs1Decoder();
+            this.line = new Gs1DataSlice();
+            this.block_buffer = new byte[BLOCK];
+        }
+
+        @Override
+        public long[] call() throws IOException
+        {
+            long window_pos = this.from;
+            while (window_pos < this.to)
+            {
+                long window_len = Math.min(MAX_WINDOW, this.to - window_pos);
+                MappedByteBuffer mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, window_pos, window_len);
+                int limit = (int) window_len;
+                if (window_pos + window_len < this.to)
+                {
+                    // only whole lines, the rest is mapped again with the next window
+                    limit = lastLineEnd(mapped, 0, limit);
+                    if (limit <= 0)
+                    {
+                        throw new IOException("Line at " + window_pos + " is longer than " + MAX_WINDOW + " bytes");
+                    }
+                }
+                decodeLines(mapped, window_pos, limit);
+                window_pos += limit;
+            }
+            return new long[]{this.records, this.errors};
+        }
+
+        private void decodeLines(MappedByteBuffer mapped, long base, int limit) throws IOException
+        {
+            int block_start = 0;
+            while (block_start < limit)
+            {
+                // whole lines only, a line longer than a block gets a block of its own
+                int block_end = Math.min(block_start + BLOCK, limit);
+                if (block_end < limit)
+                {
+                    int line_end = lastLineEnd(mapped, block_start, block_end);
+                    block_end = line_end > block_start ? line_end : Math.min(findLineEnd(mapped, block_end, limit) + 1, limit);
+                }
+                int block_len = block_end - block_start;
+                if (this.block_buffer.length < block_len)
+                {
+                    this.block_buffer = new byte[block_len];
+                }
+                mapped.limit(block_end);
+                mapped.position(block_start);
+                mapped.get(this.block_buffer, 0, block_len);
+                mapped.limit(mapped.capacity());
+
+                decodeBlock(base + block_start, block_len);
+                block_start = block_end;
+            }
+        }
+
+        // the lines of the block buffer[0..length), which starts at position in the file
+        private void decodeBlock(long position, int length) throws IOException
+        {
+            byte[] block = this.block_buffer;
+            int start = 0;
+            while (start < length)
+            {
+                int end = Gs1DataBuffer.indexOf(block, start, length, LF);
+                int next = end + 1;
+                if (end > start && block[end - 1] == CR)
+                {
+                    end -= 1;
+                }
+                if (end > start)
+                {
+                    decodeLine(position + start, start, end - start);
+                }
+                start = next;
+            }
+        }
+
+        private void decodeLine(long position, int start, int length) throws IOException
+        {
+            this.line.set(this.block_buffer, start, length);
+            if (this.decoder.tryDecodeInto(this.block_buffer, start, length) == Gs1Decoder.STATUS_OK)
+            {
+                this.records += 1;
+                this.sink.onRecord(position, this.decoder);
+            }
+            else
+            {
+                this.errors += 1;
+                this.sink.onError(position, this.line, this.decoder.getError());
+            }
+        }
+    }
+
+    static int findLineEnd(MappedByteBuffer mapped, int start, int limit)
+    {
+        return Gs1DataBuffer.indexOf(mapped, start, limit, LF);
+    }
+
+    // end of the last whole line in mapped[start..limit), start if there is none
+    private static int lastLineEnd(MappedByteBuffer mapped, int start, int limit)
+    {
+        return Gs1DataBuffer.lastIndexOf(mapped, start, limit, LF) + 1;
+    }
+
+    // start of the first line at or after position
+    private static long alignToLine(FileChannel channel, long position, long size) throws IOException
+    {
+        if (position <= 0)
+        {
+            return 0;
+        }
+        long pos = position - 1;
+        while (pos < size)
+        {
+            long window_len = Math.min(64 * 1024, size - pos);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, pos, window_len);
+            int end = findLineEnd(mapped, 0, (int) window_len);
+            if (end < window_len)
+            {
+                return pos + end + 1;
+            }
+            pos += window_len;
+        }
+        return size;
+    }
+
+    public static Gs1FileStats decodeFile(Path file, Gs1RecordSink sink) throws IOException
+    {
+        long start_time = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            long[] counts = new ChunkDecoder(channel, 0, size, sink).call();
+            return new Gs1FileStats(counts[0], counts[1], size, System.nanoTime() - start_time);
+        }
+    }
+
+    // Splits the file into chunks at line boundaries and decodes them on the executor.
+    // The sink is called from several threads at once and has to be thread-safe.
+    public static Gs1FileStats decodeFile(Path file, Gs1RecordSink sink, ExecutorService executor, int chunks) throws IOException
+    {
+        long start_time = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            chunks = (int) Math.max(1, Math.min(chunks, size / (64 * 1024) + 1));
+
+            List<Future<long[]>> results = new ArrayList<>();
+            long chunk_start = 0;
+            for (int i = 1; i <= chunks && chunk_start < size; i++)
+            {
+                long chunk_end = i == chunks ? size : alignToLine(channel, size * i / chunks, size);
+                if (chunk_end > chunk_start)
+                {
+                    results.add(executor.submit(new ChunkDecoder(channel, chunk_start, chunk_end, sink)));
+                    chunk_start = chunk_end;
+                }
+            }
+
+            long records = 0;
+            long errors = 0;
+            for (Future<long[]> result : results)
+            {
+                long[] counts = getChunk(result);
+                records += counts[0];
+                errors += counts[1];
+            }
+            return new Gs1FileStats(records, errors, size, System.nanoTime() - start_time);
+        }
+    }
+
+    private static long[] getChunk(Future<long[]> result) throws IOException
+    {
+        try
+        {
+            return result.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("File decode interrupted", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("File decode failed", e.getCause());
+        }
+    }
+
+    // Sink writing one tab-separated row per line: position, OK and AI:data pairs, or position,
+    // ERROR, message and the raw line (GS written as ~). Synchronized, so it can be used for parallel decodes.
+    public static Gs1RecordSink textSink(final Writer writer)
+    {
+        return new Gs1RecordSink()
+        {
+            @Override
+            public synchronized void onRecord(long position, Gs1Decoder record) throws IOException
+            {
+                writer.write(Long.toString(position));
+                writer.write("\tOK");
+                for (int i = 0; i < record.size(); i++)
+                {
+                    Gs1Element element = record.getElement(i);
+                    writer.write('\t');
+                    writer.write(element.getApplicationIdentifier());
+                    writer.write(':');
+                    writer.write(element.getValue());
+                }
+                writer.write('\n');
+            }
+
+            @Override
+            public synchronized void onError(long position, Gs1DataSlice line, Gs1Decoder.Gs1Exception error) throws IOException
+            {
+                writer.write(Long.toString(position));
+                writer.write("\tERROR\t");
+                writer.write(error != null ? error.getMessage() : "No GS1 code");
+                writer.write('\t');
+                writer.write(line.toString().replace(Gs1Decoder.GS, '~'));
+                writer.write('\n');
+            }
+        };
+    }
+}
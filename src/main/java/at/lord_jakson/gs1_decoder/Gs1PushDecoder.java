@@ -0,0 +1,428 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.nio.ByteBuffer;
+
+public class Gs1PushDecoder
+{
+    // Resumable decoder for scanners that deliver a symbol in pieces (keyboard wedge, serial port).
+    // Input is pushed in chunks of any size and collected in a scratch array, and every element is
+    // passed to the visitor as soon as it is complete: a fixed-length field once its last char arrived,
+    // a variable-length field at its separator. Only the field at the end of the symbol waits for
+    // endOfSymbol(). Elements are read by the same code as Gs1Decoder, so the elements and the status
+    // of a symbol are the same as decoding it in one piece. Digital Link URIs (input starting with 'h')
+    // are decoded as a whole at the end of the symbol. Metrics are not recorded. Each symbol is decoded
+    // with the dictionary that was live when its first byte arrived.
+    // The element given to the visitor points into the scratch array, it is only valid during the visit.
+
+    private static final int STATE_PREFIX = 0;
+    private static final int STATE_ELEMENT = 1;
+    private static final int STATE_DONE = 2;
+
+    private final Gs1Visitor visitor;
+    private final Gs1Visitor linkVisitor = new Gs1Visitor()
+    {
+        @Override
+        public boolean visit(Gs1Element element)
+        {
+            elementCount += 1;
+            return visitor.visit(element);
+        }
+    };
+    private final Gs1DataBuffer buffer;
+    private final Gs1Element element;
+    private final Gs1DataSlice errorAi;
+    private Gs1AiSet selection;
+    private boolean checkDigits;
+    private Gs1DataFields.Field_ListRoot dictionary;
+
+    private byte[] scratch;
+    private int length;
+    private int state;
+    private boolean finished;
+    private Gs1Decoder.Gs1Decoder_CodeType codeType;
+    private Gs1Decoder.Gs1Decoder_Symbology symbology;
+    private char groupSeparator = Gs1Decoder.GS;
+    private char separator;
+    private int status;
+    private int elementCount;
+
+    // the element being read starts at elementPos, its data at dataPos (-1 while the AI is incomplete)
+    private int elementPos;
+    private int dataPos;
+    private int fixedLen;
+    // bytes before scanPos were already searched for the next terminator
+    private int scanPos;
+
+    public Gs1PushDecoder(Gs1Visitor visitor)
+    {
+        this.visitor = visitor;
+        this.buffer = new Gs1DataBuffer();
+        this.element = new Gs1Element();
+        this.errorAi = new Gs1DataSlice();
+        this.scratch = new byte[64];
+        reset();
+    }
+
+    // drops the current symbol
+    public Gs1PushDecoder reset()
+    {
+        this.length = 0;
+        this.dictionary = Gs1DataFields.getDictionary();
+        this.state = STATE_PREFIX;
+        this.finished = false;
+        this.codeType = null;
+        this.symbology = null;
+        this.status = Gs1Decoder.STATUS_OK;
+        this.elementCount = 0;
+        this.elementPos = 0;
+        this.dataPos = -1;
+        this.scanPos = 0;
+        return this;
+    }
+
+    public Gs1PushDecoder setSelection(Gs1AiSet wanted)
+    {
+        this.selection = wanted;
+        return this;
+    }
+
+    public Gs1AiSet getSelection()
+    {
+        return this.selection;
+    }
+
+    // see Gs1Decoder.setGroupSeparator
+    public Gs1PushDecoder setGroupSeparator(char separator)
+    {
+        this.groupSeparator = Gs1Decoder.checkGroupSeparator(separator);
+        return this;
+    }
+
+    public char getGroupSeparator()
+    {
+        return this.groupSeparator;
+    }
+
+    public Gs1PushDecoder setCheckDigits(boolean enabled)
+    {
+        this.checkDigits = enabled;
+        return this;
+    }
+
+    public boolean getCheckDigits()
+    {
+        return this.checkDigits;
+    }
+
+    private int begin(int count)
+    {
+        if (this.finished)
+        {
+            reset();
+        }
+        if (this.length + count > this.scratch.length)
+        {
+            byte[] temp_scratch = new byte[Math.max(this.length + count, this.scratch.length * 2)];
+            System.arraycopy(this.scratch, 0, temp_scratch, 0, this.length);
+            this.scratch = temp_scratch;
+        }
+        int pos = this.length;
+        this.length += count;
+        return pos;
+    }
+
+    // Each feed returns the status so far: STATUS_OK while the symbol is fine, otherwise the final
+    // status of the symbol, the rest of the symbol is then ignored up to endOfSymbol().
+
+    public int feed(byte[] data, int offset, int length)
+    {
+        if (offset < 0 || length < 0 || offset > data.length - length)
+        {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + data.length);
+        }
+        if (this.state != STATE_DONE || this.finished)
+        {
+            int pos = begin(length);
+            System.arraycopy(data, offset, this.scratch, pos, length);
+            advance(false);
+        }
+        return this.status;
+    }
+
+    public int feed(byte value)
+    {
+        if (this.state != STATE_DONE || this.finished)
+        {
+            int pos = begin(1);
+            this.scratch[pos] = value;
+            advance(false);
+        }
+        return this.status;
+    }
+
+    // consumes the remaining bytes of data
+    public int feed(ByteBuffer data)
+    {
+        if (this.state != STATE_DONE || this.finished)
+        {
+            int pos = begin(data.remaining());
+            data.get(this.scratch, pos, this.length - pos);
+            advance(false);
+        }
+        else
+        {
+            data.position(data.limit());
+        }
+        return this.status;
+    }
+
+    public int feed(CharSequence data)
+    {
+        if (this.state != STATE_DONE || this.finished)
+        {
+            int pos = begin(data.length());
+            for (int i = 0; i < data.length(); i++)
+            {
+                char temp = data.charAt(i);
+                this.scratch[pos + i] = temp < 128 ? (byte) temp : (byte) '?';
+            }
+            advance(false);
+        }
+        return this.status;
+    }
+
+    // Completes the symbol: the last field is read and the final status returned (like tryDecode).
+    // The next feed starts a new symbol, the status stays readable until then.
+    public int endOfSymbol()
+    {
+        if (this.finished)
+        {
+            reset();
+        }
+        advance(true);
+        this.state = STATE_DONE;
+        this.finished = true;
+        return this.status;
+    }
+
+    private void advance(boolean end)
+    {
+        while (true)
+        {
+            switch (this.state)
+            {
+                case STATE_PREFIX:
+                    // an AIM identifier is only recognized once its three chars are there
+                    if ((this.length == 0 || this.scratch[0] == ']' && this.length < 3 || (this.scratch[0] | 0x20) == 'h') && !end)
+                    {
+                        return;
+                    }
+                    this.buffer.reset(this.scratch, 0, this.length);
+                    this.symbology = Gs1Decoder.readSymbology(this.buffer);
+                    this.codeType = Gs1Decoder.readCodeType(this.buffer, this.symbology, this.groupSeparator);
+                    if (this.codeType == Gs1Decoder.Gs1Decoder_CodeType.NONE)
+                    {
+                        this.status = Gs1Decoder.STATUS_NO_GS1_CODE;
+                        this.state = STATE_DONE;
+                        return;
+                    }
+                    if (this.codeType == Gs1Decoder.Gs1Decoder_CodeType.DIGITAL_LINK)
+                    {
+                        this.status = Gs1DigitalLink.decode(this.buffer, this.dictionary, this.element, this.errorAi, this.selection, this.checkDigits, this.linkVisitor, null);
+                        this.state = STATE_DONE;
+                        return;
+                    }
+                    this.separator = this.codeType == Gs1Decoder.Gs1Decoder_CodeType.GS ? this.groupSeparator : separator(this.codeType);
+                    this.elementPos = this.buffer.getArrayPos();
+                    this.scanPos = this.elementPos;
+                    this.state = STATE_ELEMENT;
+                    break;
+
+                case STATE_ELEMENT:
+                    if (this.elementPos >= this.length)
+                    {
+                        return;
+                    }
+                    int element_end = elementEnd(end);
+                    if (element_end < 0)
+                    {
+                        return;
+                    }
+                    this.buffer.reset(this.scratch, 0, element_end).seek(this.elementPos);
+                    int result = Gs1Decoder.decodeElement(this.buffer, this.dictionary, this.codeType, this.groupSeparator, this.element, this.errorAi, this.selection, this.checkDigits, null);
+                    if (result != Gs1Decoder.STATUS_OK)
+                    {
+                        this.status = result;
+                        this.state = STATE_DONE;
+                        return;
+                    }
+                    this.elementPos = this.buffer.getArrayPos();
+                    this.dataPos = -1;
+                    this.scanPos = this.elementPos;
+                    if (this.selection == null || this.selection.contains(this.element.field))
+                    {
+                        this.elementCount += 1;
+                        if (!this.visitor.visit(this.element))
+                        {
+                            this.state = STATE_DONE;
+                            return;
+                        }
+                    }
+                    break;
+
+                default:
+                    return;
+            }
+        }
+    }
+
+    private static char separator(Gs1Decoder.Gs1Decoder_CodeType codeType)
+    {
+        switch (codeType)
+        {
+            case PC:
+                return Gs1Decoder.PC;
+            case BRACKET_ROUND:
+                return '(';
+            default:
+                return '[';
+        }
+    }
+
+    // End of the current element including its terminator, -1 while more input is needed.
+    // At the end of the symbol everything left belongs to the element.
+    private int elementEnd(boolean end)
+    {
+        if (this.dataPos < 0)
+        {
+            if (this.codeType == Gs1Decoder.Gs1Decoder_CodeType.GS || this.codeType == Gs1Decoder.Gs1Decoder_CodeType.PC)
+            {
+                int ai_len = applicationIdentifierLength(this.elementPos);
+                if (ai_len < 0)
+                {
+                    // no dictionary AI, the decoder reports the error
+                    return this.length;
+                }
+                if (ai_len == 0)
+                {
+                    return end ? this.length : -1;
+                }
+                this.dataPos = this.elementPos + ai_len;
+            }
+            else
+            {
+                char close_bracket = this.codeType == Gs1Decoder.Gs1Decoder_CodeType.BRACKET_ROUND ? ')' : ']';
+                int close_pos = Gs1DataBuffer.indexOf(this.scratch, this.scanPos, this.length, (byte) close_bracket);
+                if (close_pos >= this.length)
+                {
+                    this.scanPos = this.length;
+                    return end ? this.length : -1;
+                }
+                this.dataPos = close_pos + 1;
+                this.fixedLen = 0;
+            }
+            this.scanPos = this.dataPos;
+        }
+
+        if (this.fixedLen > 0)
+        {
+            int data_end = this.dataPos + this.fixedLen;
+            return data_end <= this.length ? data_end : end ? this.length : -1;
+        }
+        int separator_pos = Gs1DataBuffer.indexOf(this.scratch, this.scanPos, this.length, (byte) this.separator);
+        if (separator_pos >= this.length)
+        {
+            this.scanPos = this.length;
+            return end ? this.length : -1;
+        }
+        return separator_pos + 1;
+    }
+
+    // Walks the AI trie over the GS/% input at pos: the AI length with the decimal digit once the AI is
+    // complete (fixedLen is set), 0 while more chars are needed, -1 if the chars lead to no AI.
+    private int applicationIdentifierLength(int pos)
+    {
+        // the decoder reads two chars before it gives up, so the error AI needs both
+        if (this.length - pos < 2)
+        {
+            return 0;
+        }
+        if (!isDigit(this.scratch[pos]) || !isDigit(this.scratch[pos + 1]))
+        {
+            return -1;
+        }
+        Gs1DataField_Type temp_item = this.dictionary.getItem((this.scratch[pos] - '0') * 10 + this.scratch[pos + 1] - '0');
+        int temp_pos = pos + 2;
+        while (temp_item instanceof Gs1DataFields.Field_List)
+        {
+            if (temp_pos >= this.length)
+            {
+                return 0;
+            }
+            if (!isDigit(this.scratch[temp_pos]))
+            {
+                return -1;
+            }
+            temp_item = ((Gs1DataFields.Field_List) temp_item).getItem(this.scratch[temp_pos] - '0');
+            temp_pos += 1;
+        }
+        if (temp_item == null)
+        {
+            return -1;
+        }
+
+        Gs1DataFields.Field_Item item = (Gs1DataFields.Field_Item) temp_item;
+        int ai_len = temp_pos - pos + (item.getVarDec() ? 1 : 0);
+        if (pos + ai_len > this.length)
+        {
+            return 0;
+        }
+        this.fixedLen = item.getDataLen();
+        return ai_len;
+    }
+
+    private static boolean isDigit(byte value)
+    {
+        return value >= '0' && value <= '9';
+    }
+
+    public int getStatus()
+    {
+        return this.status;
+    }
+
+    // null until the prefix of the symbol arrived
+    public Gs1Decoder.Gs1Decoder_CodeType getCodeType()
+    {
+        return this.codeType;
+    }
+
+    public Gs1Decoder.Gs1Decoder_Symbology getSymbology()
+    {
+        return this.symbology;
+    }
+
+    // elements passed to the visitor for the current symbol
+    public int getElementCount()
+    {
+        return this.elementCount;
+    }
+
+    // bytes received for the current symbol
+    public int getLength()
+    {
+        return this.length;
+    }
+
+    // offset of the failing AI in the symbol, -1 without failure
+    public int getErrorPosition()
+    {
+        return this.status > 0 ? this.errorAi.getOffset() : -1;
+    }
+
+    // the failure of the symbol as exception, null without failure
+    public Gs1Decoder.Gs1Exception getError()
+    {
+        return this.status > 0 ? Gs1Decoder.exception(this.status, this.element, this.errorAi) : null;
+    }
+}
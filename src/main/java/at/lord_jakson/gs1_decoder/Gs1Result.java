@@ -0,0 +1,165 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.util.Iterator;
+
+public final class Gs1Result implements Iterable<Gs1Decoder.Gs1Item>
+{
+    // Immutable decode result, safe to share between threads. It owns a copy of the element data,
+    // so it stays valid when the input array or the decoder that produced it is reused.
+
+    private final Gs1Decoder.Gs1Decoder_CodeType codeType;
+    private final Gs1Decoder.Gs1Decoder_Symbology symbology;
+    private final Gs1DataFields.Field_ListRoot dictionary;
+    private final byte[] data;
+    private final Gs1Element[] elements;
+    private volatile Gs1ElementIndex index;
+
+    Gs1Result(Gs1Decoder.Gs1Decoder_CodeType codeType, Gs1Decoder.Gs1Decoder_Symbology symbology, Gs1Decoder decoder)
+    {
+        this(codeType, symbology, decoder.getIndex().getDictionary(), decoder.getElements(), decoder.size());
+    }
+
+    Gs1Result(Gs1Decoder.Gs1Decoder_CodeType codeType, Gs1Decoder.Gs1Decoder_Symbology symbology, Gs1DataFields.Field_ListRoot dictionary, Gs1Element[] sources, int count)
+    {
+        int total = 0;
+        for (int i = 0; i < count; i++)
+        {
+            total += sources[i].getDataLength();
+        }
+
+        this.codeType = codeType;
+        this.symbology = symbology;
+        this.dictionary = dictionary;
+        this.data = new byte[total];
+        this.elements = new Gs1Element[count];
+        int pos = 0;
+        for (int i = 0; i < count; i++)
+        {
+            Gs1Element source = sources[i];
+            Gs1DataSlice slice = source.getData();
+            System.arraycopy(slice.getArray(), slice.getOffset(), this.data, pos, slice.length());
+
+            Gs1Element element = new Gs1Element();
+            element.copyFrom(source);
+            element.data.set(this.data, pos, slice.length());
+            this.elements[i] = element;
+            pos += slice.length();
+        }
+    }
+
+    public Gs1Decoder.Gs1Decoder_CodeType getCodeType()
+    {
+        return this.codeType;
+    }
+
+    // AIM symbology the code was sent with, NONE for codes without identifier
+    public Gs1Decoder.Gs1Decoder_Symbology getSymbology()
+    {
+        return this.symbology;
+    }
+
+    public int size()
+    {
+        return this.elements.length;
+    }
+
+    public Gs1Element getElement(int index)
+    {
+        return this.elements[index];
+    }
+
+    Gs1Element[] getElements()
+    {
+        return this.elements;
+    }
+
+    public Gs1Decoder.Gs1Item getItem(int index)
+    {
+        return this.elements[index].toItem();
+    }
+
+    // built on the first query, a race only builds the same index twice
+    public Gs1ElementIndex getIndex()
+    {
+        Gs1ElementIndex result = this.index;
+        if (result == null)
+        {
+            result = new Gs1ElementIndex(this.dictionary);
+            for (int i = 0; i < this.elements.length; i++)
+            {
+                result.add(this.elements[i], i);
+            }
+            this.index = result;
+        }
+        return result;
+    }
+
+    public Gs1Element getElementByAi(String applicationIdentifier)
+    {
+        int temp_index = getIndex().indexOf(applicationIdentifier, this.elements, this.elements.length);
+        return temp_index >= 0 ? this.elements[temp_index] : null;
+    }
+
+    public Gs1Element getElementByTitle(String title)
+    {
+        int temp_index = getIndex().indexOfTitle(title);
+        return temp_index >= 0 ? this.elements[temp_index] : null;
+    }
+
+    public Gs1Decoder.Gs1Item getItemByAi(String applicationIdentifier)
+    {
+        Gs1Element element = getElementByAi(applicationIdentifier);
+        return element != null ? element.toItem() : null;
+    }
+
+    public Gs1Decoder.Gs1Item getItemByTitle(String title)
+    {
+        Gs1Element element = getElementByTitle(title);
+        return element != null ? element.toItem() : null;
+    }
+
+    public boolean has(String applicationIdentifier)
+    {
+        return getElementByAi(applicationIdentifier) != null;
+    }
+
+    @Override
+    public Iterator<Gs1Decoder.Gs1Item> iterator()
+    {
+        return new Iterator<Gs1Decoder.Gs1Item>()
+        {
+            private int currentIndex = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return currentIndex < elements.length;
+            }
+
+            @Override
+            public Gs1Decoder.Gs1Item next()
+            {
+                return getItem(currentIndex++);
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder strBuilder = new StringBuilder();
+
+        for (Gs1Element element : this.elements)
+        {
+            strBuilder.append(element.toString()).append("\n");
+        }
+
+        return strBuilder.toString();
+    }
+}
@@ -0,0 +1,375 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+public class Gs1ScanStore
+{
+    // Columnar store for large numbers of decoded scans. All element data lives in one byte arena,
+    // every element is a slot in primitive columns (ordinal, decimal char, flags, data offset and length),
+    // and every scan is a row pointing at its first element. For the AIs of the column set there is
+    // also a dense long column per row: the epoch day for date AIs, the numeric (unscaled) value for
+    // the others, NULL if the AI is missing or its data does not parse.
+    // Codes are decoded straight into the columns, no Gs1Element or Gs1Item is kept per scan.
+
+    public static final long NULL = Long.MIN_VALUE;
+
+    private static final byte FLAG_VALID = 1;
+
+    // read-only view on the per-row values of one AI
+    public final class Column
+    {
+        private final Gs1DataFields.Field_Item field;
+        private final int column;
+
+        private Column(Gs1DataFields.Field_Item field, int column)
+        {
+            this.field = field;
+            this.column = column;
+        }
+
+        public Gs1DataFields.Field_Item getField()
+        {
+            return this.field;
+        }
+
+        public long get(int row)
+        {
+            return rowValues[this.column][checkRow(row)];
+        }
+
+        public boolean isNull(int row)
+        {
+            return get(row) == NULL;
+        }
+    }
+
+    private final Gs1DataFields.Field_ListRoot dictionary;
+    private final int[] columnByOrdinal;
+    private final Column[] columns;
+    private final int currentYear;
+
+    private byte[] arena;
+    private int arenaSize;
+
+    private short[] elementOrdinal;
+    private byte[] elementDecimal;
+    private byte[] elementFlags;
+    private int[] elementOffset;
+    private int[] elementLength;
+    private int elementCount;
+
+    private int[] rowStart;
+    private long[][] rowValues;
+    private int rowCount;
+
+    private final Gs1DataBuffer buffer;
+    private final Gs1Element scratch;
+    private final Gs1DataSlice errorAi;
+    private final Gs1Visitor appender = new Gs1Visitor()
+    {
+        @Override
+        public boolean visit(Gs1Element element)
+        {
+            appendElement(element);
+            return true;
+        }
+    };
+
+    public Gs1ScanStore(Gs1AiSet valueColumns)
+    {
+        this(valueColumns, 1024);
+    }
+
+    public Gs1ScanStore(Gs1AiSet valueColumns, int expectedRows)
+    {
+        // rows are decoded with this dictionary for the lifetime of the store, a swap does not renumber them
+        this.dictionary = Gs1DataFields.getDictionary();
+        this.columnByOrdinal = new int[this.dictionary.getItemCount()];
+        Arrays.fill(this.columnByOrdinal, -1);
+        // AIs the dictionary does not have get no column
+        List<Gs1DataFields.Field_Item> fields = valueColumns.forDictionary(this.dictionary).getItems();
+        this.columns = new Column[fields.size()];
+        int column = 0;
+        for (Gs1DataFields.Field_Item field : fields)
+        {
+            this.columnByOrdinal[field.ordinal] = column;
+            this.columns[column] = new Column(field, column);
+            column += 1;
+        }
+        // fixed once, so the century of a stored date does not depend on when it was added
+        this.currentYear = Gs1Element.yearOfEpochDay(System.currentTimeMillis() / 86400000L);
+
+        int rows = Math.max(expectedRows, 16);
+        this.arena = new byte[rows * 32];
+        this.elementOrdinal = new short[rows * 4];
+        this.elementDecimal = new byte[rows * 4];
+        this.elementFlags = new byte[rows * 4];
+        this.elementOffset = new int[rows * 4];
+        this.elementLength = new int[rows * 4];
+        this.rowStart = new int[rows + 1];
+        this.rowValues = new long[this.columns.length][rows];
+
+        this.buffer = new Gs1DataBuffer();
+        this.scratch = new Gs1Element();
+        this.errorAi = new Gs1DataSlice();
+    }
+
+    private void appendElement(Gs1Element element)
+    {
+        Gs1DataFields.Field_Item field = element.field;
+        Gs1DataSlice data = element.data;
+        int data_len = data.length();
+        if (this.elementCount == this.elementOrdinal.length)
+        {
+            int capacity = this.elementCount * 2;
+            this.elementOrdinal = Arrays.copyOf(this.elementOrdinal, capacity);
+            this.elementDecimal = Arrays.copyOf(this.elementDecimal, capacity);
+            this.elementFlags = Arrays.copyOf(this.elementFlags, capacity);
+            this.elementOffset = Arrays.copyOf(this.elementOffset, capacity);
+            this.elementLength = Arrays.copyOf(this.elementLength, capacity);
+        }
+        if (this.arenaSize + data_len > this.arena.length)
+        {
+            this.arena = Arrays.copyOf(this.arena, Math.max(this.arena.length * 2, this.arenaSize + data_len));
+        }
+        System.arraycopy(data.getArray(), data.getOffset(), this.arena, this.arenaSize, data_len);
+
+        int index = this.elementCount;
+        this.elementOrdinal[index] = (short) field.ordinal;
+        this.elementDecimal[index] = (byte) element.decimalChar;
+        this.elementFlags[index] = element.valid ? FLAG_VALID : 0;
+        this.elementOffset[index] = this.arenaSize;
+        this.elementLength[index] = data_len;
+        this.arenaSize += data_len;
+        this.elementCount += 1;
+
+        int column = field.ordinal >= 0 && field.ordinal < this.columnByOrdinal.length ? this.columnByOrdinal[field.ordinal] : -1;
+        if (column >= 0 && this.rowValues[column][this.rowCount] == NULL)
+        {
+            this.rowValues[column][this.rowCount] = columnValue(element);
+        }
+    }
+
+    private long columnValue(Gs1Element element)
+    {
+        if (!element.isNumeric() || element.data.length() > 18)
+        {
+            return NULL;
+        }
+        if (element.hasCurrency() && element.data.length() <= 3)
+        {
+            // currency without amount
+            return NULL;
+        }
+        if (element.field.dateField)
+        {
+            try
+            {
+                return element.getEpochDay(this.currentYear);
+            }
+            catch (IllegalArgumentException e)
+            {
+                return NULL;
+            }
+        }
+        return element.getUnscaledValue();
+    }
+
+    private void beginRow()
+    {
+        if (this.rowCount + 1 >= this.rowStart.length)
+        {
+            int capacity = this.rowStart.length * 2;
+            this.rowStart = Arrays.copyOf(this.rowStart, capacity);
+            for (int i = 0; i < this.rowValues.length; i++)
+            {
+                this.rowValues[i] = Arrays.copyOf(this.rowValues[i], capacity);
+            }
+        }
+        for (long[] values : this.rowValues)
+        {
+            values[this.rowCount] = NULL;
+        }
+        this.rowStart[this.rowCount] = this.elementCount;
+    }
+
+    private int addRow(Gs1DataBuffer code) throws Gs1Decoder.Gs1Exception
+    {
+        int arena_mark = this.arenaSize;
+        beginRow();
+        boolean added = false;
+        try
+        {
+            int status = Gs1Decoder.decode(code, this.dictionary, this.scratch, this.errorAi, this.appender);
+            if (status > 0)
+            {
+                throw Gs1Decoder.exception(status, this.scratch, this.errorAi);
+            }
+            if (status != Gs1Decoder.STATUS_OK)
+            {
+                return -1;
+            }
+            this.rowCount += 1;
+            this.rowStart[this.rowCount] = this.elementCount;
+            added = true;
+            return this.rowCount - 1;
+        }
+        finally
+        {
+            if (!added)
+            {
+                // drop the elements of the failed scan, also when a column value or the arena throws
+                this.elementCount = this.rowStart[this.rowCount];
+                this.arenaSize = arena_mark;
+            }
+        }
+    }
+
+    // decodes the code into a new row and returns the row, -1 for codes without GS1 prefix
+    public int add(byte[] code, int offset, int length) throws Gs1Decoder.Gs1Exception
+    {
+        return addRow(this.buffer.reset(code, offset, length));
+    }
+
+    public int add(CharSequence code) throws Gs1Decoder.Gs1Exception
+    {
+        return addRow(this.buffer.reset(code));
+    }
+
+    public int size()
+    {
+        return this.rowCount;
+    }
+
+    public int getElementCount()
+    {
+        return this.elementCount;
+    }
+
+    private int checkRow(int row)
+    {
+        if (row < 0 || row >= this.rowCount)
+        {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + this.rowCount);
+        }
+        return row;
+    }
+
+    private int checkElement(int element)
+    {
+        if (element < 0 || element >= this.elementCount)
+        {
+            throw new IndexOutOfBoundsException("Element: " + element + ", Size: " + this.elementCount);
+        }
+        return element;
+    }
+
+    // the elements of a row are getRowStart(row) .. getRowEnd(row) - 1
+    public int getRowStart(int row)
+    {
+        return this.rowStart[checkRow(row)];
+    }
+
+    public int getRowEnd(int row)
+    {
+        return this.rowStart[checkRow(row) + 1];
+    }
+
+    // per-row values of an AI of the column set, null for other AIs
+    public Column getColumn(String applicationIdentifier)
+    {
+        Gs1DataFields.Field_Item field = this.dictionary.lookup(applicationIdentifier);
+        if (field == null)
+        {
+            for (Column column : this.columns)
+            {
+                if (column.field.applicationIdentifier.equals(applicationIdentifier))
+                {
+                    return column;
+                }
+            }
+            return null;
+        }
+        int column = this.columnByOrdinal[field.ordinal];
+        return column >= 0 ? this.columns[column] : null;
+    }
+
+    // writes the rows whose value of the column is in [min, max) to rows, returns their count
+    public int select(Column column, long min, long max, int[] rows)
+    {
+        long[] values = this.rowValues[column.column];
+        int count = 0;
+        for (int row = 0; row < this.rowCount && count < rows.length; row++)
+        {
+            long value = values[row];
+            if (value != NULL && value >= min && value < max)
+            {
+                rows[count++] = row;
+            }
+        }
+        return count;
+    }
+
+    public Gs1DataFields.Field_Item getField(int element)
+    {
+        return this.dictionary.getItemByOrdinal(this.elementOrdinal[checkElement(element)]);
+    }
+
+    public int getOrdinal(int element)
+    {
+        return this.elementOrdinal[checkElement(element)];
+    }
+
+    public boolean isValid(int element)
+    {
+        return (this.elementFlags[checkElement(element)] & FLAG_VALID) != 0;
+    }
+
+    // index of the first element of the row with the dictionary item, -1 if absent
+    public int findElement(int row, Gs1DataFields.Field_Item field)
+    {
+        for (int i = getRowStart(row); i < this.rowStart[row + 1]; i++)
+        {
+            if (this.elementOrdinal[i] == field.ordinal)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // fills target with a view of the element for the typed accessors, valid until the store grows
+    public Gs1Element getElement(int element, Gs1Element target)
+    {
+        checkElement(element);
+        Gs1DataFields.Field_Item field = this.dictionary.getItemByOrdinal(this.elementOrdinal[element]);
+        char decimalChar = (char) (this.elementDecimal[element] & 0xFF);
+        int decimals = field.getVarDec() && decimalChar >= '0' && decimalChar <= '9' ? decimalChar - '0' : 0;
+        target.set(field, decimalChar, decimals, this.arena, this.elementOffset[element], this.elementOffset[element], this.elementLength[element]);
+        target.valid = (this.elementFlags[element] & FLAG_VALID) != 0;
+        return target;
+    }
+
+    public String getData(int element)
+    {
+        checkElement(element);
+        return new String(this.arena, this.elementOffset[element], this.elementLength[element], StandardCharsets.US_ASCII);
+    }
+
+    // approximate heap use of the arena and the columns
+    public long getMemoryBytes()
+    {
+        long result = this.arena.length;
+        result += this.elementOrdinal.length * (2L + 1 + 1 + 4 + 4);
+        result += this.rowStart.length * (4L + 8L * this.rowValues.length);
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.rowCount + " rows, " + this.elementCount + " elements, " + this.arenaSize + " data bytes";
+    }
+}
@@ -0,0 +1,72 @@
+package at.lord_jakson.gs1_decoder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class Gs1Transcoder
+{
+    // Converts element strings to another code type in one pass: the decoder streams every element
+    // straight into the encoder, no Gs1Item or String is created. Input and output must not overlap.
+    // Elements with invalid content are copied as they are, structural errors throw a Gs1Exception and
+    // elements the target type cannot represent (see Gs1Encoder) an IllegalArgumentException.
+
+    private final Gs1Encoder encoder;
+    private final Gs1DataBuffer buffer;
+    private final Gs1Element element;
+    private final Gs1DataSlice errorAi;
+    private final Gs1Visitor writer = new Gs1Visitor()
+    {
+        @Override
+        public boolean visit(Gs1Element element)
+        {
+            encoder.add(element);
+            return true;
+        }
+    };
+
+    public Gs1Transcoder(Gs1Decoder.Gs1Decoder_CodeType target)
+    {
+        this.encoder = new Gs1Encoder(target);
+        this.buffer = new Gs1DataBuffer();
+        this.element = new Gs1Element();
+        this.errorAi = new Gs1DataSlice();
+    }
+
+    public Gs1Decoder.Gs1Decoder_CodeType getTarget()
+    {
+        return this.encoder.getCodeType();
+    }
+
+    private int transcode(Gs1DataBuffer code) throws Gs1Decoder.Gs1Exception
+    {
+        int status = Gs1Decoder.decode(code, this.element, this.errorAi, this.writer);
+        if (status > 0)
+        {
+            throw Gs1Decoder.exception(status, this.element, this.errorAi);
+        }
+        return status == Gs1Decoder.STATUS_OK ? this.encoder.finish() : -1;
+    }
+
+    // returns the number of bytes written, -1 if the code has no GS1 prefix
+    public int transcode(byte[] code, int offset, int length, byte[] out, int outOffset, int outLength) throws Gs1Decoder.Gs1Exception
+    {
+        this.encoder.reset(out, outOffset, outLength);
+        return transcode(this.buffer.reset(code, offset, length));
+    }
+
+    // reads the remaining bytes of code without moving its position, writes at the position of out
+    public int transcode(ByteBuffer code, ByteBuffer out) throws Gs1Decoder.Gs1Exception
+    {
+        this.encoder.reset(out);
+        return transcode(this.buffer.reset(code));
+    }
+
+    public String transcode(CharSequence code) throws Gs1Decoder.Gs1Exception
+    {
+        // every element grows by at most 2 chars (brackets) and has at least 2 chars
+        byte[] out = new byte[code.length() * 2 + 2];
+        this.encoder.reset(out, 0, out.length);
+        int length = transcode(this.buffer.reset(code));
+        return length >= 0 ? new String(out, 0, length, StandardCharsets.US_ASCII) : null;
+    }
+}
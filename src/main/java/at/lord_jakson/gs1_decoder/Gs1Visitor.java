@@ -0,0 +1,8 @@
+package at.lord_jakson.gs1_decoder;
+
+public interface Gs1Visitor
+{
+    // Called for every decoded element. The element is reused for the next one, copy what has to be kept.
+    // Return false to stop decoding.
+    boolean visit(Gs1Element element);
+}
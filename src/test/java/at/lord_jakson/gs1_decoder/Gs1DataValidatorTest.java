@@ -0,0 +1,139 @@
+package at.lord_jakson.gs1_decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class Gs1DataValidatorTest
+{
+    // The compiled validators have to agree with the AI regexes. For every AI of the dictionary values
+    // are generated from the format (valid), with one char changed, dropped or added (near misses) and
+    // from random chars, the regex decides what is expected.
+
+    private static final String POOL = "0123456789ABCXYZabcz!\"%&'()*+,-./:;<=>?_# \u001d[]";
+    private static final int CASES = 300;
+
+    @Test
+    public void compiledValidatorsMatchRegExs()
+    {
+        Gs1DataFields.Field_ListRoot dictionary = Gs1DataFields.root;
+        Random random = new Random(42);
+        int compiled = 0;
+        for (int i = 0; i < dictionary.getItemCount(); i++)
+        {
+            Gs1DataFields.Field_Item item = dictionary.getItemByOrdinal(i);
+            Pattern pattern = Pattern.compile(item.regEx);
+            long[] descriptor = item.validator.getDescriptor();
+            compiled += descriptor != null ? 1 : 0;
+
+            int matches = 0;
+            for (int j = 0; j < CASES; j++)
+            {
+                char decimal_char = item.getVarDec() ? (char) ('0' + random.nextInt(10)) : 0;
+                String valid = descriptor != null ? validValue(descriptor, random) : randomValue(random);
+                matches += check(item, pattern, decimal_char, valid) ? 1 : 0;
+                check(item, pattern, decimal_char, nearMiss(valid, random));
+                check(item, pattern, decimal_char, randomValue(random));
+                if (item.getVarDec())
+                {
+                    check(item, pattern, POOL.charAt(random.nextInt(POOL.length())), valid);
+                }
+            }
+            if (descriptor != null)
+            {
+                assertTrue("no generated value of AI " + item.applicationIdentifier + " matches " + item.regEx, matches > 0);
+            }
+        }
+        assertTrue(compiled > dictionary.getItemCount() - 5);
+    }
+
+    // classes beyond ASCII do not fit the masks and take the regex fallback
+    @Test
+    public void nonAsciiClassFallsBackToRegEx()
+    {
+        Gs1DataValidator validator = Gs1DataValidator.compile("99", "^99([\\x41-\\x5A\\xC0-\\xFF]{1,5})$", false);
+        assertEquals(false, validator.isCompiled());
+        byte[] data = "AB".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(true, validator.isValid(data, (char) 0, 0, data.length));
+    }
+
+    private static boolean check(Gs1DataFields.Field_Item item, Pattern pattern, char decimalChar, String value)
+    {
+        byte[] data = value.getBytes(StandardCharsets.ISO_8859_1);
+        String ai = item.getVarDec() ? item.applicationIdentifier + decimalChar : item.applicationIdentifier;
+        boolean expected = pattern.matcher(ai + value).matches();
+        assertEquals("AI " + ai + " '" + value + "'", expected, item.validator.isValid(data, decimalChar, 0, data.length));
+        return expected;
+    }
+
+    // a value of the segments of the descriptor: class masks with min/max length
+    private static String validValue(long[] descriptor, Random random)
+    {
+        StringBuilder value = new StringBuilder();
+        for (int pos = 2; pos < descriptor.length; pos += 4)
+        {
+            List<Character> chars = new ArrayList<>();
+            for (int c = 0; c < 128; c++)
+            {
+                long mask = c < 64 ? descriptor[pos] : descriptor[pos + 1];
+                if ((mask >>> (c & 63) & 1) != 0)
+                {
+                    chars.add((char) c);
+                }
+            }
+            int min = (int) descriptor[pos + 2];
+            int max = (int) descriptor[pos + 3];
+            int len = min + random.nextInt(max - min + 1);
+            for (int i = 0; i < len; i++)
+            {
+                value.append(chars.get(random.nextInt(chars.size())));
+            }
+        }
+        return value.toString();
+    }
+
+    private static String nearMiss(String value, Random random)
+    {
+        StringBuilder result = new StringBuilder(value);
+        int pos = random.nextInt(value.length() + 1);
+        char temp = random.nextInt(20) == 0 ? '\u00e9' : POOL.charAt(random.nextInt(POOL.length()));
+        switch (random.nextInt(3))
+        {
+            case 0:
+                if (pos < value.length())
+                {
+                    result.setCharAt(pos, temp);
+                    break;
+                }
+                // fall through: nothing to change at the end
+            case 1:
+                result.insert(pos, temp);
+                break;
+            default:
+                if (pos < value.length())
+                {
+                    result.deleteCharAt(pos);
+                }
+        }
+        return result.toString();
+    }
+
+    private static String randomValue(Random random)
+    {
+        int len = random.nextInt(100);
+        boolean digits = random.nextInt(3) == 0;
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < len; i++)
+        {
+            value.append(digits ? (char) ('0' + random.nextInt(10)) : POOL.charAt(random.nextInt(POOL.length())));
+        }
+        return value.toString();
+    }
+}
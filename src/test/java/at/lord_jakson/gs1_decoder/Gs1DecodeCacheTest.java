@@ -0,0 +1,57 @@
+package at.lord_jakson.gs1_decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+public class Gs1DecodeCacheTest
+{
+    private static final String CODE = "(01)09506000134352(7250)19840131";
+
+    // entries of an old dictionary are decoded again after a swap, a cached failure must not hide a new AI
+    @Test
+    public void swappedDictionaryReplacesEntries() throws IOException, Gs1Decoder.Gs1Exception
+    {
+        String table = new String(Files.readAllBytes(Paths.get("src/main/dictionary/gs1-ai-table.txt")), StandardCharsets.UTF_8);
+        Gs1DataFields.Field_ListRoot extended = Gs1DataFields.loadDictionary(new StringReader(table + "\n7250 8 - DATE_OF_BIRTH ^7250(\\d{8})$\n"));
+        Gs1DecodeCache cache = new Gs1DecodeCache(16);
+        try
+        {
+            decodeFails(cache, Gs1Decoder.Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER);
+
+            Gs1DataFields.setDictionary(extended);
+            Gs1Result result = cache.decode(CODE);
+            assertEquals("19840131", result.getElementByAi("7250").getData().toString());
+            assertSame(extended, result.getElement(0).getField().getDictionary());
+            assertSame(result, cache.decode(CODE));
+
+            Gs1DataFields.setDictionary(Gs1DataFields.root);
+            decodeFails(cache, Gs1Decoder.Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER);
+        }
+        finally
+        {
+            Gs1DataFields.setDictionary(Gs1DataFields.root);
+        }
+    }
+
+    private static void decodeFails(Gs1DecodeCache cache, int code)
+    {
+        try
+        {
+            cache.decode(CODE);
+            fail("decoded " + CODE);
+        }
+        catch (Gs1Decoder.Gs1Exception e)
+        {
+            assertEquals(code, e.getCode());
+        }
+    }
+}
@@ -0,0 +1,813 @@
+package at.lord_jakson.gs1_decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class Gs1DecoderTest
+{
+    private static final String[] CODES = {
+        "\u001d0104012345678901172512311012AB\u001d3103001234",
+        "(01)04012345678901(17)251231(10)ABC(21)12345",
+        "[00]123456789012345678[3922]12345",
+        "%010401234567890121XYZ"
+    };
+
+    // AI and value pairs for the encoder, fixed- and variable-length, var-decimal and the longest fields
+    private static final String[][] ELEMENTS = {
+        {"01", "04012345678901"}, {"17", "251231"}, {"10", "AB-12/x"}, {"21", "S!_:?\""}, {"3103", "001234"},
+        {"3922", "499"}, {"00", "123456789012345675"}, {"400", "PO-4711"}, {"7003", "2512311200"},
+        {"8200", "https://example.com/some/product/path?with=query&and=more"}, {"3912", "97812345"},
+        {"99", "123456789012345678901234567890123456789012345678901234567890123456789012345678901234567890"}
+    };
+    private static final Gs1Decoder.Gs1Decoder_CodeType[] CODE_TYPES = {
+        Gs1Decoder.Gs1Decoder_CodeType.GS, Gs1Decoder.Gs1Decoder_CodeType.PC,
+        Gs1Decoder.Gs1Decoder_CodeType.BRACKET_ROUND, Gs1Decoder.Gs1Decoder_CodeType.BRACKET_SQUARE
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // decodeInto, tryDecodeInto and reset must not allocate once the decoder has grown its buffers
+    @Test
+    public void decodeIntoDoesNotAllocate() throws Gs1Decoder.Gs1Exception
+    {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        byte[][] codes = new byte[CODES.length][];
+        for (int i = 0; i < CODES.length; i++)
+        {
+            codes[i] = CODES[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        Gs1Decoder decoder = new Gs1Decoder();
+        long sum = decodeAll(decoder, codes, 50000);
+
+        long thread_id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread_id);
+        sum += decodeAll(decoder, codes, 200000);
+        long allocated = threads.getThreadAllocatedBytes(thread_id) - before;
+
+        assertEquals(250000L * 6, sum);
+        // the counter itself may allocate a few bytes, one object per decode would be megabytes
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static long decodeAll(Gs1Decoder decoder, byte[][] codes, int count) throws Gs1Decoder.Gs1Exception
+    {
+        long sum = 0;
+        for (int i = 0; i < count; i++)
+        {
+            byte[] code = codes[i & 3];
+            sum += decoder.decodeInto(code, 0, code.length).size();
+            sum += decoder.tryDecodeInto(CODES[(i + 1) & 3]) == Gs1Decoder.STATUS_OK ? decoder.size() : -100;
+            decoder.reset();
+        }
+        return sum;
+    }
+
+    // The word-wise separator search and GS1 char check against a byte loop: random spans with and
+    // without separator, bytes >= 0x80 and a separator >= 0x80, on arrays and direct buffers.
+    @Test
+    public void spanSearchMatchesByteLoop()
+    {
+        String valid = "!\"%&'()*+,-./0123456789:;<=>?ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+        String separators = "\u001d%([\u00e8";
+        Random random = new Random(25);
+        for (int i = 0; i < 200000; i++)
+        {
+            int len = random.nextInt(40);
+            byte[] array = new byte[len + 6];
+            int mode = random.nextInt(3);
+            for (int j = 0; j < array.length; j++)
+            {
+                boolean any = mode == 0 || mode == 2 && random.nextInt(50) == 0;
+                array[j] = (byte) (any ? random.nextInt(256) : valid.charAt(random.nextInt(valid.length())));
+            }
+            char separator = separators.charAt(random.nextInt(separators.length()));
+            if (len > 0 && random.nextInt(4) == 0)
+            {
+                array[3 + random.nextInt(len)] = (byte) separator;
+            }
+
+            int end = 3 + len;
+            int pos = 3;
+            boolean gs1_chars = true;
+            while (pos < end && array[pos] != (byte) separator)
+            {
+                gs1_chars &= valid.indexOf(array[pos]) >= 0;
+                pos += 1;
+            }
+            String message = "case " + i;
+            for (int check = 0; check < 2; check++)
+            {
+                Gs1DataBuffer buffer = new Gs1DataBuffer(array, 3, len);
+                assertEquals(message, pos - 3, buffer.readSpanVar(separator, check == 1));
+                assertEquals(message, pos < end ? pos + 1 : pos, buffer.getArrayPos());
+                assertEquals(message, check == 1 && gs1_chars, buffer.isSpanGs1Chars());
+            }
+            int last = end - 1;
+            while (last >= 3 && array[last] != (byte) separator)
+            {
+                last -= 1;
+            }
+            assertEquals(message, pos, Gs1DataBuffer.indexOf(array, 3, end, (byte) separator));
+            for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN})
+            {
+                ByteBuffer direct = ByteBuffer.allocateDirect(array.length).order(order);
+                direct.put(array).clear();
+                assertEquals(message, pos, Gs1DataBuffer.indexOf(direct, 3, end, (byte) separator));
+                assertEquals(message, last, Gs1DataBuffer.lastIndexOf(direct, 3, end, (byte) separator));
+            }
+        }
+    }
+
+    // A scan log with LF and CRLF lines, empty lines, lines without GS1 code and a line longer than a
+    // block (64 KB): the rows of the file decoder have to be the ones of decoding every line on its own,
+    // read as one chunk and split into several chunks.
+    @Test
+    public void fileDecoderMatchesLineByLine() throws IOException, Gs1Decoder.Gs1Exception
+    {
+        StringBuilder text = new StringBuilder();
+        StringWriter expected = new StringWriter();
+        Gs1FileDecoder.Gs1RecordSink sink = Gs1FileDecoder.textSink(expected);
+        Gs1Decoder decoder = new Gs1Decoder();
+        char[] long_data = new char[70000];
+        Arrays.fill(long_data, 'A');
+        for (int i = 0; i < 40000; i++)
+        {
+            String line;
+            switch (i % 6)
+            {
+                case 0:
+                    line = CODES[i / 6 & 3];
+                    break;
+                case 1:
+                    line = "\u001d0104012345678901172" + i;
+                    break;
+                case 2:
+                    line = i % 20000 == 2 ? "(10)" + new String(long_data) : "";
+                    break;
+                case 3:
+                    line = i % 4 == 1 ? "no code" : "\u001d77xx";
+                    break;
+                default:
+                    line = "(01)04012345678901(10)L" + i;
+            }
+            int position = text.length();
+            text.append(line).append(i % 5 == 0 ? "\r\n" : "\n");
+            if (!line.isEmpty())
+            {
+                byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+                if (decoder.tryDecodeInto(bytes, 0, bytes.length) == Gs1Decoder.STATUS_OK)
+                {
+                    sink.onRecord(position, decoder);
+                }
+                else
+                {
+                    sink.onError(position, new Gs1DataSlice(bytes, 0, bytes.length), decoder.getError());
+                }
+                decoder.reset();
+            }
+        }
+        // the last line without line end
+        text.append(CODES[1]);
+        sink.onRecord(text.length() - CODES[1].length(), decoder.decodeInto(CODES[1]));
+
+        File file = this.folder.newFile("scans.log");
+        Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.US_ASCII));
+
+        StringWriter single = new StringWriter();
+        Gs1FileDecoder.Gs1FileStats stats = Gs1FileDecoder.decodeFile(file.toPath(), Gs1FileDecoder.textSink(single));
+        assertEquals(expected.toString(), single.toString());
+        assertEquals(text.length(), stats.bytes);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            StringWriter chunked = new StringWriter();
+            Gs1FileDecoder.Gs1FileStats chunked_stats = Gs1FileDecoder.decodeFile(file.toPath(), Gs1FileDecoder.textSink(chunked), executor, 7);
+            assertEquals(sortedRows(expected), sortedRows(chunked));
+            assertEquals(stats.records, chunked_stats.records);
+            assertEquals(stats.errors, chunked_stats.errors);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static String sortedRows(StringWriter writer)
+    {
+        String[] rows = writer.toString().split("\n");
+        Arrays.sort(rows);
+        return Arrays.toString(rows);
+    }
+
+    // Counts of decodes from several threads: code types, an exception, AIs with a validation failure,
+    // and the latency buckets, which have to add up to the decodes.
+    @Test
+    public void metricsCountDecodesOfAllThreads() throws Exception
+    {
+        final String[] codes = {"(23)1", "(01)04012345678901(10)AB#", CODES[0], "no code"};
+        final int rounds = 1000;
+        Gs1DecoderMetrics metrics = new Gs1DecoderMetrics();
+        Gs1Decoder.setMetrics(metrics);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++)
+            {
+                futures.add(executor.submit(new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call()
+                    {
+                        Gs1Decoder decoder = new Gs1Decoder();
+                        int sum = 0;
+                        for (int i = 0; i < rounds; i++)
+                        {
+                            for (String code : codes)
+                            {
+                                sum += decoder.tryDecodeInto(code) == Gs1Decoder.STATUS_OK ? 1 : 0;
+                                decoder.reset();
+                            }
+                        }
+                        return sum;
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures)
+            {
+                assertEquals(Integer.valueOf(2 * rounds), future.get());
+            }
+        }
+        finally
+        {
+            Gs1Decoder.setMetrics(null);
+            executor.shutdown();
+        }
+
+        long count = 4 * rounds;
+        Gs1DecoderMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(count * 4, snapshot.getDecodes());
+        assertEquals(count * 2, snapshot.getDecodes(Gs1Decoder.Gs1Decoder_CodeType.BRACKET_ROUND));
+        assertEquals(count, snapshot.getDecodes(Gs1Decoder.Gs1Decoder_CodeType.GS));
+        assertEquals(count, snapshot.getDecodes(Gs1Decoder.Gs1Decoder_CodeType.NONE));
+        assertEquals(count, snapshot.getExceptions(Gs1Decoder.Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER));
+        assertEquals(0, snapshot.getExceptions(Gs1Decoder.Gs1Exception.INVALID_DATA));
+        assertEquals(count * 2, snapshot.getAiCount(Gs1DataFields.root.find("01").ordinal));
+        assertEquals(count * 2, snapshot.getAiCount(Gs1DataFields.root.find("10").ordinal));
+        assertEquals(count, snapshot.getAiInvalidCount(Gs1DataFields.root.find("10").ordinal));
+        assertEquals(count, snapshot.getAiCount(Gs1DataFields.root.find("3103").ordinal));
+        assertEquals(count, snapshot.getValidationFailures());
+
+        long buckets = 0;
+        for (int i = 0; i < Gs1DecoderMetrics.LATENCY_BUCKETS; i++)
+        {
+            buckets += snapshot.getLatencyBucket(i);
+        }
+        assertEquals(count * 4, buckets);
+        assertTrue(snapshot.getLatencyQuantile(0.5) <= snapshot.getLatencyQuantile(1));
+        assertTrue(snapshot.toString().contains("ai.10.invalid " + count + "\n"));
+    }
+
+    @Test
+    public void latencyBucketsHaveBounds()
+    {
+        assertEquals(0, Gs1DecoderMetrics.latencyBucket(0));
+        assertEquals(0, Gs1DecoderMetrics.latencyBucket(1));
+        assertEquals(10, Gs1DecoderMetrics.latencyBucket(1024));
+        assertEquals(10, Gs1DecoderMetrics.latencyBucket(2047));
+        assertEquals(Gs1DecoderMetrics.LATENCY_BUCKETS - 1, Gs1DecoderMetrics.latencyBucket(1L << 62));
+        assertEquals(Gs1DecoderMetrics.LATENCY_BUCKETS - 1, Gs1DecoderMetrics.latencyBucket(Long.MAX_VALUE));
+    }
+
+    // separators only after variable-length fields in GS and % codes, brackets around every AI
+    @Test
+    public void encoderWritesCodeTypes()
+    {
+        String[] expected = {
+            "\u001d010401234567890110AB\u001d172512313103001234",
+            "%010401234567890110AB%172512313103001234",
+            "(01)04012345678901(10)AB(17)251231(3103)001234",
+            "[01]04012345678901[10]AB[17]251231[3103]001234"
+        };
+        byte[] out = new byte[100];
+        for (int i = 0; i < CODE_TYPES.length; i++)
+        {
+            Gs1Encoder encoder = new Gs1Encoder(CODE_TYPES[i]).reset(out, 0, out.length);
+            encoder.add("01", "04012345678901").add("10", "AB").add("17", "251231").add("3103", "001234");
+            assertEquals(expected[i].length(), encoder.finish());
+            assertEquals(expected[i], encoder.toString());
+        }
+        Gs1Encoder empty = new Gs1Encoder(Gs1Decoder.Gs1Decoder_CodeType.PC).reset(out, 5, 10);
+        assertEquals(1, empty.finish());
+        assertEquals('%', out[5]);
+    }
+
+    // random element lists written with the encoder (array, heap and direct buffer) decode to the same elements
+    @Test
+    public void encoderRoundTrips() throws Gs1Decoder.Gs1Exception
+    {
+        Random random = new Random(15);
+        byte[] out = new byte[2000];
+        ByteBuffer direct = ByteBuffer.allocateDirect(2000);
+        for (int i = 0; i < 2000; i++)
+        {
+            List<String> elements = new ArrayList<>();
+            int count = 1 + random.nextInt(6);
+            for (int j = 0; j < count; j++)
+            {
+                String[] element = ELEMENTS[random.nextInt(ELEMENTS.length)];
+                elements.add(element[0] + "=" + element[1]);
+            }
+            Gs1Decoder.Gs1Decoder_CodeType code_type = CODE_TYPES[i % CODE_TYPES.length];
+            Gs1Encoder encoder = new Gs1Encoder(code_type);
+
+            int offset = random.nextInt(10);
+            encoder.reset(out, offset, out.length - offset);
+            addAll(encoder, elements);
+            int length = encoder.finish();
+            Gs1Result result = Gs1Decoder.decode(out, offset, length);
+            assertEquals(elements, elements(result));
+            assertEquals(code_type, result.getCodeType());
+
+            direct.clear().position(offset);
+            addAll(encoder.reset(direct), elements);
+            assertEquals(length, encoder.finish());
+            assertEquals(offset + length, direct.position());
+            direct.flip().position(offset);
+            assertEquals(elements, elements(Gs1Decoder.decode(direct)));
+
+            // re-encoding the decoded elements gives the same bytes
+            byte[] again = new byte[length];
+            assertEquals(length, new Gs1Encoder(code_type).reset(again, 0, length).addAll(result).finish());
+            assertEquals(new String(out, offset, length, StandardCharsets.US_ASCII), new String(again, StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void encoderRejectsBrokenElements()
+    {
+        byte[] out = new byte[40];
+        Gs1Encoder gs = new Gs1Encoder(Gs1Decoder.Gs1Decoder_CodeType.GS);
+        Gs1Encoder round = new Gs1Encoder(Gs1Decoder.Gs1Decoder_CodeType.BRACKET_ROUND);
+        assertRejected(gs.reset(out, 0, out.length), "01", "0401234567890");
+        assertRejected(gs.reset(out, 0, out.length), "10", "A\u001dB");
+        assertRejected(gs.reset(out, 0, out.length), "10", "A\u00e9");
+        assertRejected(gs.reset(out, 0, out.length), "3103", "123");
+        assertRejected(gs.reset(out, 0, out.length), "77", "1");
+        assertRejected(round.reset(out, 0, out.length), "10", "A(B");
+        try
+        {
+            gs.reset(out, 0, 10).add("01", "04012345678901");
+            fail("no overflow");
+        }
+        catch (BufferOverflowException e)
+        {
+            // expected
+        }
+        try
+        {
+            new Gs1Encoder(Gs1Decoder.Gs1Decoder_CodeType.DIGITAL_LINK);
+            fail("Digital Link encoder");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    private static void assertRejected(Gs1Encoder encoder, String applicationIdentifier, String value)
+    {
+        try
+        {
+            encoder.add(applicationIdentifier, value);
+            fail("accepted " + applicationIdentifier + " " + value);
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    // every code type into every other one and back, the elements stay the same
+    @Test
+    public void transcoderRoundTrips() throws Gs1Decoder.Gs1Exception
+    {
+        Random random = new Random(16);
+        for (int i = 0; i < 500; i++)
+        {
+            List<String> elements = new ArrayList<>();
+            int count = 1 + random.nextInt(6);
+            for (int j = 0; j < count; j++)
+            {
+                String[] element = ELEMENTS[random.nextInt(ELEMENTS.length)];
+                elements.add(element[0] + "=" + element[1]);
+            }
+            for (Gs1Decoder.Gs1Decoder_CodeType source : CODE_TYPES)
+            {
+                byte[] out = new byte[1000];
+                Gs1Encoder encoder = new Gs1Encoder(source).reset(out, 0, out.length);
+                addAll(encoder, elements);
+                String code = encoder.toString();
+                for (Gs1Decoder.Gs1Decoder_CodeType target : CODE_TYPES)
+                {
+                    Gs1Transcoder transcoder = new Gs1Transcoder(target);
+                    String transcoded = transcoder.transcode(code);
+                    Gs1Result result = Gs1Decoder.decode(transcoded);
+                    assertEquals(elements, elements(result));
+                    assertEquals(target, result.getCodeType());
+                    assertEquals(code, new Gs1Transcoder(source).transcode(transcoded));
+
+                    byte[] bytes = new byte[transcoded.length()];
+                    byte[] source_bytes = code.getBytes(StandardCharsets.US_ASCII);
+                    assertEquals(bytes.length, transcoder.transcode(source_bytes, 0, source_bytes.length, bytes, 0, bytes.length));
+                    assertEquals(transcoded, new String(bytes, StandardCharsets.US_ASCII));
+                }
+            }
+        }
+
+        Gs1Transcoder transcoder = new Gs1Transcoder(Gs1Decoder.Gs1Decoder_CodeType.GS);
+        assertNull(transcoder.transcode("no code"));
+        try
+        {
+            transcoder.transcode("(01)04012345678901(77)1");
+            fail("unknown AI transcoded");
+        }
+        catch (Gs1Decoder.Gs1Exception e)
+        {
+            assertEquals(Gs1Decoder.Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER, e.getCode());
+        }
+    }
+
+    private static void addAll(Gs1Encoder encoder, List<String> elements)
+    {
+        for (String element : elements)
+        {
+            int split = element.indexOf('=');
+            encoder.add(element.substring(0, split), element.substring(split + 1));
+        }
+    }
+
+    private static List<String> elements(Gs1Result result)
+    {
+        List<String> elements = new ArrayList<>();
+        for (int i = 0; i < result.size(); i++)
+        {
+            Gs1Element element = result.getElement(i);
+            elements.add(element.getApplicationIdentifier() + "=" + element.getData());
+        }
+        return elements;
+    }
+
+    // With check digits on, elements of GTIN, SSCC, GLN and the other keys that pass the format check
+    // are also checked mod 10; the digits may be followed by a serial part (253, 8003)
+    @Test
+    public void checkDigitsAcceptAndReject() throws Gs1Decoder.Gs1Exception
+    {
+        Gs1Decoder decoder = new Gs1Decoder();
+        assertEquals(false, decoder.getCheckDigits());
+        decoder.decodeInto("(01)09506000134353");
+        assertEquals(true, decoder.getElement(0).isValid());
+        decoder.reset();
+
+        assertSame(decoder, decoder.setCheckDigits(true));
+        assertEquals(true, decoder.getCheckDigits());
+        decoder.decodeInto("(01)09506000134352(10)X(01)09506000134353(01)0950600013435A");
+        assertEquals(true, decoder.getElement(0).isValid());
+        assertEquals(true, decoder.getElement(1).isValid());
+        assertEquals(false, decoder.getElement(2).isValid());
+        assertEquals(false, decoder.getElement(2).isCheckDigitValid());
+        assertEquals("Invalid Check Digit: [01]09506000134353", decoder.getElement(2).getError());
+        // a format error is reported as such, the check digit is not looked at
+        assertEquals(false, decoder.getElement(3).isValid());
+        assertEquals(true, decoder.getElement(3).isCheckDigitValid());
+        decoder.reset();
+
+        Random random = new Random(16);
+        String[][] keys = {{"00", "18", ""}, {"402", "17", ""}, {"414", "13", ""}, {"8018", "18", ""}, {"253", "13", "DOC-7"}, {"8003", "14", "X1"}};
+        for (int i = 0; i < 200; i++)
+        {
+            String[] key = keys[i % keys.length];
+            StringBuilder digits = new StringBuilder();
+            for (int j = 1; j < Integer.parseInt(key[1]); j++)
+            {
+                digits.append((char) ('0' + random.nextInt(10)));
+            }
+            int check = checkDigit(digits);
+            String valid = "(" + key[0] + ")" + digits + check + key[2];
+            String invalid = "(" + key[0] + ")" + digits + (check + 1 + random.nextInt(9)) % 10 + key[2];
+            decoder.decodeInto(valid);
+            assertEquals(valid, true, decoder.getElement(0).isValid());
+            decoder.reset().decodeInto(invalid);
+            assertEquals(invalid, false, decoder.getElement(0).isValid());
+            assertEquals(invalid, false, decoder.getElement(0).isCheckDigitValid());
+            decoder.reset();
+        }
+
+        byte[] short_data = "7".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(false, Gs1DataValidator.isCheckDigitValid(short_data, 0, 1));
+    }
+
+    // weights 3,1,3,... from the rightmost digit
+    private static int checkDigit(CharSequence digits)
+    {
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++)
+        {
+            int weight = (digits.length() - i) % 2 == 1 ? 3 : 1;
+            sum += (digits.charAt(i) - '0') * weight;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    // An AIM identifier of a GS1 symbology stands for the leading FNC1, the elements follow without GS.
+    // Identifiers of the same symbologies without GS1 content (other modifiers) are no GS1 codes.
+    @Test
+    public void aimIdentifiersSelectSymbology() throws Gs1Decoder.Gs1Exception
+    {
+        Gs1Decoder decoder = new Gs1Decoder();
+        String fields = "010401234567890110AB\u001d17251231";
+        for (Gs1Decoder.Gs1Decoder_Symbology symbology : Gs1Decoder.Gs1Decoder_Symbology.values())
+        {
+            if (symbology == Gs1Decoder.Gs1Decoder_Symbology.NONE)
+            {
+                continue;
+            }
+            String code = symbology.getIdentifier() + fields;
+            assertEquals(code, Gs1Decoder.STATUS_OK, decoder.tryDecodeInto(code));
+            assertSame(code, symbology, decoder.getSymbology());
+            assertSame(code, Gs1Decoder.Gs1Decoder_CodeType.GS, decoder.getDecodedCodeType());
+            assertEquals(code, 3, decoder.size());
+            assertEquals(code, "04012345678901", decoder.getElement(0).getData().toString());
+
+            Gs1Result result = Gs1Decoder.decode(ByteBuffer.wrap(code.getBytes(StandardCharsets.US_ASCII)));
+            assertSame(code, symbology, result.getSymbology());
+            assertEquals(code, Arrays.asList("01=04012345678901", "10=AB", "17=251231"), elements(result));
+
+            Gs1DataBuffer buffer = new Gs1DataBuffer(code);
+            assertSame(code, symbology, Gs1Decoder.readSymbology(buffer));
+            assertEquals(code, 3, buffer.getArrayPos());
+        }
+
+        String[] others = {"]C0", "]e1", "]d1", "]Q1", "]J0", "]E0", "]X1", "]c1"};
+        for (String identifier : others)
+        {
+            String code = identifier + fields;
+            assertEquals(code, Gs1Decoder.STATUS_NO_GS1_CODE, decoder.tryDecodeInto(code));
+            assertSame(code, Gs1Decoder.Gs1Decoder_Symbology.NONE, decoder.getSymbology());
+            Gs1DataBuffer buffer = new Gs1DataBuffer(code);
+            assertSame(code, Gs1Decoder.Gs1Decoder_Symbology.NONE, Gs1Decoder.readSymbology(buffer));
+            assertEquals(code, 0, buffer.getArrayPos());
+        }
+
+        // too short for an identifier, and codes without one
+        assertSame(Gs1Decoder.Gs1Decoder_Symbology.NONE, Gs1Decoder.readSymbology(new Gs1DataBuffer("]C")));
+        for (String code : CODES)
+        {
+            assertEquals(code, Gs1Decoder.STATUS_OK, decoder.tryDecodeInto(code));
+            assertSame(code, Gs1Decoder.Gs1Decoder_Symbology.NONE, decoder.getSymbology());
+        }
+        assertEquals(Gs1Decoder.STATUS_OK, decoder.tryDecodeInto("]C1"));
+        assertEquals(0, decoder.size());
+    }
+
+    // The AIs of a Digital Link URI are the /key/value pairs at the end of the path, the path in front
+    // of them belongs to the resolver. Numeric query parameters are AIs too, others and the fragment
+    // are ignored.
+    @Test
+    public void digitalLinksDecodePathAndQuery()
+    {
+        String host = "https://id.example.com";
+        List<String> gtin_lot = Arrays.asList("01=09506000134352", "10=ABC");
+        assertEquals(gtin_lot, link(host + "/01/09506000134352/10/ABC"));
+        assertEquals(gtin_lot, link(host + "/shop/products/01/09506000134352/10/ABC"));
+        // the walk stops at the first key that is no AI, even if it is made of digits
+        assertEquals(gtin_lot, link(host + "/77/x/01/09506000134352/10/ABC"));
+        assertEquals(Arrays.asList("01=09506000134352", "10=ABC", "21=X7"), link("http://example.com/a/b/c/01/09506000134352/10/ABC/21/X7"));
+
+        // trailing slash, before the end and before the query
+        assertEquals(gtin_lot, link(host + "/01/09506000134352/10/ABC/"));
+        assertEquals(Arrays.asList("01=09506000134352", "10=ABC", "17=251231"), link(host + "/01/09506000134352/10/ABC/?17=251231"));
+
+        // AI parameters in query order after the path, other parameters skipped
+        assertEquals(Arrays.asList("01=09506000134352", "17=251231", "3103=001234"), link(host + "/01/09506000134352?lang=de&17=251231&x=1&3103=001234&utm_source="));
+        assertEquals(Arrays.asList("01=09506000134352"), link(host + "/01/09506000134352?"));
+
+        // nothing after '#' is read, a '?' in the fragment starts no query
+        assertEquals(Arrays.asList("01=09506000134352", "17=251231"), link(host + "/01/09506000134352?17=251231#21=X"));
+        assertEquals(Arrays.asList("01=09506000134352"), link(host + "/01/09506000134352#top?17=251231"));
+        assertEquals(Arrays.asList("01=09506000134352"), link(host + "/01/09506000134352/#/10/ABC"));
+
+        // percent escapes are decoded, values after an escaped one stay intact
+        assertEquals(Arrays.asList("01=09506000134352", "10=AB/C/", "21=AB", "17=251231"), link(host + "/01/09506000134352/10/AB%2FC%2f/21/%41%42?17=%32%351231"));
+        assertEquals(Arrays.asList("8200=https://example.com/x?y=1"), link(host + "/8200/https%3A%2F%2Fexample.com%2Fx%3Fy%3D1"));
+
+        // broken escapes, digit keys that are no AIs
+        assertEquals(Arrays.asList("status 3 at 41"), link(host + "/01/09506000134352/10/AB%2G"));
+        assertEquals(Arrays.asList("status 3 at 41"), link(host + "/01/09506000134352/10/AB%2"));
+        assertEquals(Arrays.asList("status 3 at 41"), link(host + "/01/09506000134352?10=%"));
+        assertEquals(Arrays.asList("status 1 at 41"), link(host + "/01/09506000134352?77=1"));
+
+        // no AI in the path
+        String no_code = "status " + Gs1Decoder.STATUS_NO_GS1_CODE;
+        assertEquals(Arrays.asList(no_code), link(host));
+        assertEquals(Arrays.asList(no_code), link(host + "/"));
+        assertEquals(Arrays.asList(no_code), link(host + "/about/us"));
+        assertEquals(Arrays.asList(no_code), link(host + "/?01=09506000134352"));
+        assertEquals(Arrays.asList(no_code), link(host + "/01"));
+        assertEquals(Arrays.asList(no_code), link(host + "#/01/09506000134352"));
+    }
+
+    // values with escapes are decoded into the escape array of the buffer, the others stay in the input
+    @Test
+    public void digitalLinkUnescapesIntoEscapeBuffer()
+    {
+        byte[] code = "https://id.example.com/01/09506000134352/10/A%2FB/21/X7".getBytes(StandardCharsets.US_ASCII);
+        Gs1Decoder decoder = new Gs1Decoder();
+        assertEquals(Gs1Decoder.STATUS_OK, decoder.tryDecodeInto(code, 0, code.length));
+        assertSame(Gs1Decoder.Gs1Decoder_CodeType.DIGITAL_LINK, decoder.getDecodedCodeType());
+        assertSame(code, decoder.getElement(0).getData().getArray());
+        assertSame(code, decoder.getElement(2).getData().getArray());
+        Gs1DataSlice escaped = decoder.getElement(1).getData();
+        assertTrue(escaped.getArray() != code);
+        assertEquals("A/B", escaped.toString());
+        // at the offset the value has in the input
+        assertEquals(44, escaped.getOffset());
+        assertEquals("X7", decoder.getElement(2).getData().toString());
+    }
+
+    private static List<String> link(String code)
+    {
+        Gs1Decoder decoder = new Gs1Decoder();
+        int status = decoder.tryDecodeInto(code);
+        List<String> result = new ArrayList<>();
+        if (status == Gs1Decoder.STATUS_OK)
+        {
+            assertSame(code, Gs1Decoder.Gs1Decoder_CodeType.DIGITAL_LINK, decoder.getDecodedCodeType());
+            for (int i = 0; i < decoder.size(); i++)
+            {
+                Gs1Element element = decoder.getElement(i);
+                assertTrue(code + " " + element, element.isValid());
+                result.add(element.getApplicationIdentifier() + "=" + element.getData());
+            }
+        }
+        else
+        {
+            result.add("status " + status + (status > 0 ? " at " + decoder.getErrorPosition() : ""));
+        }
+        return result;
+    }
+
+    // Symbols pushed one byte at a time and in random pieces give the elements, in the same order, the
+    // status and the error position of the one piece decode, the push decoder is reused for all of them
+    @Test
+    public void pushDecoderMatchesOnePiece()
+    {
+        List<String> codes = new ArrayList<>(Arrays.asList(CODES));
+        codes.add("]C1010401234567890110AB\u001d17251231");
+        codes.add("]d2010401234567890121X7\u001d10AB");
+        codes.add("]d2\u001d0104012345678901\u001d21X7");
+        codes.add("https://id.example.com/shop/01/09506000134352/10/AB%2FC?17=251231&lang=de");
+        codes.add("(01)04012345678901(10)ABC(77)1(21)X");
+        codes.add("\u001d0104012345678901172513311012AB");
+        codes.add("\u001d01040123456789011012A\u00e9B\u001d21X");
+        codes.add("]C1");
+        codes.add("hello");
+
+        final List<String> pushed = new ArrayList<>();
+        Gs1PushDecoder push = new Gs1PushDecoder(new Gs1Visitor()
+        {
+            @Override
+            public boolean visit(Gs1Element element)
+            {
+                pushed.add(describe(element));
+                return true;
+            }
+        });
+        Gs1Decoder decoder = new Gs1Decoder();
+        Random random = new Random(20);
+        for (String code : codes)
+        {
+            byte[] bytes = code.getBytes(StandardCharsets.ISO_8859_1);
+            for (int round = 0; round < 20; round++)
+            {
+                // chars beyond ASCII become '?' in char input, bytes stay what they are
+                int status = round % 4 == 3 ? decoder.tryDecodeInto(code) : decoder.tryDecodeInto(bytes, 0, bytes.length);
+                List<String> expected = new ArrayList<>();
+                for (int i = 0; i < decoder.size(); i++)
+                {
+                    expected.add(describe(decoder.getElement(i)));
+                }
+                pushed.clear();
+                int pos = 0;
+                while (pos < bytes.length)
+                {
+                    int len = round == 0 ? 1 : Math.min(bytes.length - pos, 1 + random.nextInt(8));
+                    int result;
+                    switch (round % 4)
+                    {
+                        case 0:
+                            result = push.feed(bytes[pos]);
+                            len = 1;
+                            break;
+                        case 1:
+                            result = push.feed(bytes, pos, len);
+                            break;
+                        case 2:
+                            result = push.feed(ByteBuffer.wrap(bytes, pos, len));
+                            break;
+                        default:
+                            result = push.feed(code.substring(pos, pos + len));
+                            break;
+                    }
+                    assertTrue(code, result == Gs1Decoder.STATUS_OK || result == status);
+                    pos += len;
+                }
+                assertEquals(code, status, push.endOfSymbol());
+                assertEquals(code, expected, pushed);
+                assertEquals(code, expected.size(), push.getElementCount());
+                assertEquals(code, decoder.getErrorPosition(), push.getErrorPosition());
+                assertEquals(code, status > 0, push.getError() != null);
+                // input after a failure is dropped
+                assertTrue(code, status == Gs1Decoder.STATUS_OK ? push.getLength() == bytes.length : push.getLength() <= bytes.length);
+            }
+        }
+
+        // complete fields are passed on before the end of the symbol, an error as soon as the AI is read
+        pushed.clear();
+        assertEquals(Gs1Decoder.STATUS_OK, push.feed("\u001d0104012345678901172512311012AB\u001d310"));
+        assertEquals(Arrays.asList("01=04012345678901+", "17=251231+", "10=12AB+"), pushed);
+        assertEquals(Gs1Decoder.STATUS_OK, push.feed("3001234"));
+        assertEquals(4, pushed.size());
+        push.endOfSymbol();
+        assertEquals(Gs1Decoder.Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER, push.feed("(01)04012345678901(77)1(10"));
+        assertEquals(Gs1Decoder.Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER, push.feed("X)"));
+        assertEquals(Gs1Decoder.Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER, push.endOfSymbol());
+
+        // reset drops the half symbol, the next one starts from scratch
+        pushed.clear();
+        push.feed("(01)0401234567");
+        assertEquals(0, push.reset().getLength());
+        assertEquals(null, push.getCodeType());
+        push.feed(CODES[3]);
+        assertEquals(Gs1Decoder.STATUS_OK, push.endOfSymbol());
+        assertEquals(Arrays.asList("01=04012345678901+", "21=XYZ+"), pushed);
+        assertEquals(Gs1Decoder.Gs1Decoder_CodeType.PC, push.getCodeType());
+    }
+
+    private static String describe(Gs1Element element)
+    {
+        return element.getApplicationIdentifier() + "=" + element.getData() + (element.isValid() ? '+' : '-');
+    }
+
+    // the decoder binds the selection to a swapped dictionary for the decode, the caller's set stays as it was
+    @Test
+    public void selectionSurvivesDictionarySwap() throws IOException
+    {
+        Gs1AiSet wanted = Gs1AiSet.of("01", "10");
+        Gs1Decoder decoder = new Gs1Decoder().setSelection(wanted);
+        Gs1DataFields.setDictionary(Gs1DataFields.loadDictionary(Paths.get("src/main/dictionary/gs1-ai-table.txt")));
+        try
+        {
+            assertEquals(Gs1Decoder.STATUS_OK, decoder.tryDecodeInto(CODES[1]));
+            assertEquals(2, decoder.size());
+            assertSame(wanted, decoder.getSelection());
+            assertSame(Gs1DataFields.root, wanted.getDictionary());
+        }
+        finally
+        {
+            Gs1DataFields.setDictionary(Gs1DataFields.root);
+        }
+    }
+}
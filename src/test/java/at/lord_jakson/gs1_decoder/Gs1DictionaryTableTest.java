@@ -0,0 +1,125 @@
+package at.lord_jakson.gs1_decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class Gs1DictionaryTableTest
+{
+    // gs1-ai-baseline.txt is the dictionary the hand-written initGs1Data built. The dictionary generated
+    // from the table file at build time and the one loaded from it at runtime must not drift from it.
+
+    private static final String TABLE = "src/main/dictionary/gs1-ai-table.txt";
+
+    @Test
+    public void generatedDictionaryMatchesBaseline() throws IOException
+    {
+        assertMatchesBaseline(Gs1DataFields.root);
+    }
+
+    @Test
+    public void loadedDictionaryMatchesBaseline() throws IOException
+    {
+        assertMatchesBaseline(Gs1DataFields.loadDictionary(Paths.get(TABLE)));
+    }
+
+    // The built-in dictionary resolves AIs and titles with generated switches, the loaded one with the
+    // trie and a map: every digit string up to five chars and the titles have to give the same items.
+    @Test
+    public void generatedResolversMatchLoaded() throws IOException
+    {
+        Gs1DataFields.Field_ListRoot generated = Gs1DataFields.root;
+        Gs1DataFields.Field_ListRoot loaded = Gs1DataFields.loadDictionary(Paths.get(TABLE));
+        int found = 0;
+        for (int count = 1; count <= 100000; count *= 10)
+        {
+            for (int code = 0; code < count; code++)
+            {
+                // code with leading zeros, as many digits as count has zeros
+                String ai = Integer.toString(count + code).substring(1);
+                Gs1DataFields.Field_Item expected = loaded.find(ai);
+                Gs1DataFields.Field_Item actual = generated.find(ai);
+                assertEquals(ai, expected != null ? expected.ordinal : -1, actual != null ? actual.ordinal : -1);
+                found += actual != null ? 1 : 0;
+            }
+        }
+        // every item by its AI, var-decimal ones also with each decimal digit
+        int var_decs = 0;
+        for (int i = 0; i < generated.getItemCount(); i++)
+        {
+            var_decs += generated.getItemByOrdinal(i).getVarDec() ? 1 : 0;
+        }
+        assertEquals(generated.getItemCount() + var_decs * 10, found);
+        for (String ai : new String[] {"0a", "01 ", "-01", "31x3", "310300", "\u0661\u0662"})
+        {
+            assertNull(ai, generated.find(ai));
+            assertNull(ai, loaded.find(ai));
+        }
+
+        assertEquals(loaded.getTitleCount(), generated.getTitleCount());
+        for (int i = 0; i < generated.getItemCount(); i++)
+        {
+            Gs1DataFields.Field_Item item = generated.getItemByOrdinal(i);
+            Gs1DataFields.Field_Item other = loaded.getItemByOrdinal(i);
+            assertEquals(other.aiCode, item.aiCode);
+            assertEquals(Integer.parseInt(item.applicationIdentifier), item.aiCode);
+            assertEquals(other.titleOrdinal, item.titleOrdinal);
+            assertEquals(item.titleOrdinal, generated.getTitleOrdinal(item.title));
+            assertEquals(other.titleOrdinal, loaded.getTitleOrdinal(other.title));
+            for (char decimal_char = '0'; decimal_char <= '9' && item.getVarDec(); decimal_char++)
+            {
+                String ai = item.getApplicationIdentifier(decimal_char);
+                assertEquals(item.applicationIdentifier + decimal_char, ai);
+                assertSame(ai, item.getApplicationIdentifier(decimal_char));
+            }
+        }
+        assertEquals(-1, generated.getTitleOrdinal("NO_SUCH_TITLE"));
+        assertEquals(-1, generated.getTitleOrdinal(null));
+        assertEquals(-1, loaded.getTitleOrdinal("NO_SUCH_TITLE"));
+    }
+
+    private static void assertMatchesBaseline(Gs1DataFields.Field_ListRoot dictionary) throws IOException
+    {
+        List<String> lines = new ArrayList<>();
+        String version = null;
+        InputStream stream = Gs1DictionaryTableTest.class.getResourceAsStream("gs1-ai-baseline.txt");
+        assertNotNull(stream);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.startsWith("# version "))
+                {
+                    version = line.substring(10);
+                }
+                else if (!line.startsWith("#") && !line.isEmpty())
+                {
+                    lines.add(line);
+                }
+            }
+        }
+
+        assertEquals(lines.size(), dictionary.getItemCount());
+        for (int i = 0; i < lines.size(); i++)
+        {
+            Gs1DataFields.Field_Item item = dictionary.getItemByOrdinal(i);
+            String actual = item.applicationIdentifier + '\t' + item.title + '\t' + item.getDataLen() + '\t' + (item.getVarDec() ? "d" : "-") + '\t' + item.regEx;
+            assertEquals("ordinal " + i, lines.get(i), actual);
+            assertEquals(item, dictionary.find(item.applicationIdentifier));
+        }
+        assertEquals(version, String.format("%08x", dictionary.getVersion()));
+    }
+}
@@ -0,0 +1,469 @@
+package at.lord_jakson.gs1_decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class Gs1ResultTest
+{
+    private static final String[] FIELDS = {
+        "0109506000134352", "17201225", "10ABC", "21X7-12", "3103001234", "3922499", "00123456789012345675",
+        "8200https://example.com/a", "7003202512311200", "400PO-4711", "10A#B", "0109506000134353", "99"
+    };
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 20000;
+
+    // The static decode and the shared root dictionary are used by all threads at once, every
+    // result has to be the one a single thread gets for the same code.
+    @Test
+    public void concurrentDecodesMatchSingleThreaded() throws Exception
+    {
+        Random random = new Random(7);
+        final String[] codes = new String[500];
+        final String[] expected = new String[codes.length];
+        for (int i = 0; i < codes.length; i++)
+        {
+            StringBuilder code = new StringBuilder();
+            int count = 1 + random.nextInt(5);
+            boolean brackets = random.nextBoolean();
+            for (int j = 0; j < count; j++)
+            {
+                String field = FIELDS[random.nextInt(FIELDS.length)];
+                code.append(brackets ? "(" + field.substring(0, 2) + ")" + field.substring(2) : "\u001d" + field);
+            }
+            codes[i] = code.toString();
+            expected[i] = decode(codes[i]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try
+        {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++)
+            {
+                final int seed = t;
+                futures.add(executor.submit(new Callable<String>()
+                {
+                    @Override
+                    public String call()
+                    {
+                        Random order = new Random(seed);
+                        for (int i = 0; i < ROUNDS; i++)
+                        {
+                            int index = order.nextInt(codes.length);
+                            String result = decode(codes[index]);
+                            if (!result.equals(expected[index]))
+                            {
+                                return codes[index] + ": " + result + " instead of " + expected[index];
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<String> future : futures)
+            {
+                assertEquals(null, future.get());
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    // Batch results come back in input order, failing codes and codes without a GS1 prefix get
+    // their own slot. 2000 codes split into several chunks on both the pool and the executor.
+    @Test
+    public void batchKeepsOrderAndErrorSlots() throws Exception
+    {
+        Random random = new Random(11);
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+        {
+            switch (i % 10)
+            {
+                case 3:
+                    codes.add("\u001d01095060001343" + i % 10);
+                    break;
+                case 7:
+                    codes.add("no code " + i);
+                    break;
+                default:
+                    codes.add("\u001d" + FIELDS[random.nextInt(FIELDS.length)] + "\u001d10N" + i);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            assertBatch(codes, Gs1BatchDecoder.decodeAll(codes, pool));
+            assertBatch(codes, Gs1BatchDecoder.decodeAll(codes, executor, 4));
+            assertEquals(0, Gs1BatchDecoder.decodeAll(codes.subList(0, 0), pool).size());
+        }
+        finally
+        {
+            pool.shutdown();
+            executor.shutdown();
+        }
+    }
+
+    private static void assertBatch(List<String> codes, List<Gs1BatchDecoder.Gs1BatchItem> items)
+    {
+        assertEquals(codes.size(), items.size());
+        int errors = 0;
+        for (int i = 0; i < codes.size(); i++)
+        {
+            Gs1BatchDecoder.Gs1BatchItem item = items.get(i);
+            assertEquals(i, item.index);
+            String expected = decode(codes.get(i));
+            if (item.error != null)
+            {
+                assertNull(item.result);
+                errors += 1;
+                assertEquals(expected, "error " + item.error.getCode() + " " + item.error.getMessage());
+            }
+            else if (item.isDecoded())
+            {
+                assertEquals(expected, describe(item.result));
+            }
+            else
+            {
+                assertEquals(codes.get(i), "no GS1 code", expected);
+            }
+        }
+        // every tenth code is cut short, some of the random fields fail as well
+        assertTrue(errors >= codes.size() / 10);
+    }
+
+    private static String decode(String code)
+    {
+        try
+        {
+            Gs1Result result = Gs1Decoder.decode(code);
+            return result != null ? describe(result) : "no GS1 code";
+        }
+        catch (Gs1Decoder.Gs1Exception e)
+        {
+            return "error " + e.getCode() + " " + e.getMessage();
+        }
+    }
+
+    private static String describe(Gs1Result result)
+    {
+        StringBuilder text = new StringBuilder(result.toString());
+        for (int i = 0; i < result.size(); i++)
+        {
+            Gs1Element element = result.getElement(i);
+            text.append('|').append(element.getApplicationIdentifier()).append('=').append(element.getData()).append(element.isValid() ? '+' : '-');
+        }
+        return text.toString();
+    }
+
+    // epochDay and yearOfEpochDay against GregorianCalendar for every day of 1900..2199
+    @Test
+    public void epochDaysMatchCalendar()
+    {
+        GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(1900, Calendar.JANUARY, 1);
+        while (calendar.get(Calendar.YEAR) < 2200)
+        {
+            int year = calendar.get(Calendar.YEAR);
+            long expected = calendar.getTimeInMillis() / 86400000L;
+            assertEquals(expected, Gs1Element.epochDay(year, calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH)));
+            assertEquals(year, Gs1Element.yearOfEpochDay(expected));
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+    }
+
+    // YYMMDD: the century puts the year within -49..+50 years of the current one, day 00 is the
+    // last day of the month
+    @Test
+    public void datesUseCenturyWindowAndDayZero() throws Gs1Decoder.Gs1Exception
+    {
+        assertEquals(251231, date("251231").getDate());
+        assertEquals(Gs1Element.epochDay(2025, 12, 31), date("251231").getEpochDay(2025));
+
+        assertEquals(Gs1Element.epochDay(2075, 1, 1), date("750101").getEpochDay(2025));
+        assertEquals(Gs1Element.epochDay(1976, 1, 1), date("760101").getEpochDay(2025));
+        assertEquals(Gs1Element.epochDay(2031, 1, 1), date("310101").getEpochDay(2080));
+        assertEquals(Gs1Element.epochDay(2130, 1, 1), date("300101").getEpochDay(2080));
+        assertEquals(Gs1Element.epochDay(1999, 12, 31), date("991231").getEpochDay(2000));
+        assertEquals(Gs1Element.epochDay(2050, 12, 31), date("501231").getEpochDay(2000));
+
+        assertEquals(Gs1Element.epochDay(2025, 2, 28), date("250200").getEpochDay(2025));
+        assertEquals(Gs1Element.epochDay(2024, 2, 29), date("240200").getEpochDay(2025));
+        assertEquals(Gs1Element.epochDay(2000, 2, 29), date("000200").getEpochDay(2025));
+        assertEquals(Gs1Element.epochDay(2100, 2, 28), date("000200").getEpochDay(2080));
+        assertEquals(Gs1Element.epochDay(2025, 4, 30), date("250400").getEpochDay(2025));
+
+        int year = new GregorianCalendar(TimeZone.getTimeZone("UTC")).get(Calendar.YEAR);
+        assertEquals(date("250615").getEpochDay(year), date("250615").getEpochDay());
+
+        for (String invalid : new String[]{"251301", "250001", "250230", "230229", "250431"})
+        {
+            try
+            {
+                date(invalid).getEpochDay(2025);
+                fail("no exception for " + invalid);
+            }
+            catch (IllegalArgumentException e)
+            {
+                assertTrue(e.getMessage().contains(invalid));
+            }
+        }
+    }
+
+    private static Gs1Element date(String yymmdd) throws Gs1Decoder.Gs1Exception
+    {
+        return Gs1Decoder.decode("(17)" + yymmdd).getElement(0);
+    }
+
+    // value columns: numbers, amounts behind the currency, dates as epoch day, NULL where missing or empty
+    @Test
+    public void scanStoreFillsValueColumns() throws Gs1Decoder.Gs1Exception
+    {
+        Gs1ScanStore store = new Gs1ScanStore(Gs1AiSet.of("01", "17", "391", "3103"), 2);
+        assertEquals(0, store.add("(01)09506000134352(17)251231(3912)97812345(3103)001234"));
+        assertEquals(1, store.add("(01)09506000134352(3912)978"));
+        assertEquals(2, store.add("(10)ABC(17)251301"));
+        assertEquals(-1, store.add("no code"));
+        assertEquals(3, store.size());
+        assertEquals(8, store.getElementCount());
+
+        Gs1ScanStore.Column gtin = store.getColumn("01");
+        Gs1ScanStore.Column date = store.getColumn("17");
+        Gs1ScanStore.Column amount = store.getColumn("3912");
+        assertEquals(9506000134352L, gtin.get(0));
+        assertEquals(true, gtin.isNull(2));
+        assertEquals(date(store, 0).getEpochDay(), date.get(0));
+        // a month 13 does not parse as a date
+        assertEquals(true, date.isNull(2));
+        assertEquals(12345, amount.get(0));
+        assertEquals(true, amount.isNull(1));
+        assertEquals(1234, store.getColumn("3103").get(0));
+        assertNull(store.getColumn("10"));
+
+        int[] rows = new int[4];
+        assertEquals(1, store.select(amount, 0, Long.MAX_VALUE, rows));
+        assertEquals(0, rows[0]);
+        assertEquals("978", store.getData(store.findElement(1, amount.getField())));
+    }
+
+    private static Gs1Element date(Gs1ScanStore store, int row)
+    {
+        Gs1Element element = store.getElement(store.findElement(row, store.getColumn("17").getField()), new Gs1Element());
+        assertEquals("251231", element.getData().toString());
+        return element;
+    }
+
+    // a scan that fails half way leaves no elements or data behind
+    @Test
+    public void scanStoreDropsFailedScans() throws Gs1Decoder.Gs1Exception
+    {
+        Gs1ScanStore store = new Gs1ScanStore(Gs1AiSet.of("01"));
+        store.add("(01)09506000134352(10)A");
+        String before = store.toString();
+        try
+        {
+            store.add("(01)09506000134352(10)LONG-LOT(77)1");
+            fail("unknown AI stored");
+        }
+        catch (Gs1Decoder.Gs1Exception e)
+        {
+            assertEquals(Gs1Decoder.Gs1Exception.UNKNOWN_APPLICATION_IDENTIFIER, e.getCode());
+        }
+        assertEquals(before, store.toString());
+        assertEquals(1, store.add("(10)B"));
+        assertEquals(2, store.getRowStart(1));
+        assertEquals(3, store.getRowEnd(1));
+        assertEquals("B", store.getData(2));
+        assertEquals(true, store.getColumn("01").isNull(1));
+    }
+
+    // AIs of the column set that the dictionary of the store does not have get no column
+    @Test
+    public void scanStoreSkipsUnknownColumns() throws IOException, Gs1Decoder.Gs1Exception
+    {
+        String table = new String(Files.readAllBytes(Paths.get("src/main/dictionary/gs1-ai-table.txt")), StandardCharsets.UTF_8);
+        Gs1DataFields.Field_ListRoot extended = Gs1DataFields.loadDictionary(new StringReader(table + "\n7250 8 - DATE_OF_BIRTH ^7250(\\d{8})$\n"));
+        Gs1ScanStore store = new Gs1ScanStore(Gs1AiSet.of(extended, "7250", "17"));
+        store.add("(17)251231");
+        assertNull(store.getColumn("7250"));
+        assertNull(store.getColumn("99"));
+        assertEquals(false, store.getColumn("17").isNull(0));
+    }
+
+    // records read back from heap and direct buffers give the results that were written
+    @Test
+    public void binaryCodecRoundTrips() throws Exception
+    {
+        List<String> expected = new ArrayList<>();
+        byte[] stream = binaryStream(expected);
+        for (ByteBuffer in : new ByteBuffer[] {ByteBuffer.wrap(stream), ByteBuffer.allocateDirect(stream.length).put(stream)})
+        {
+            in.rewind();
+            Gs1BinaryCodec.Gs1BinaryReader reader = new Gs1BinaryCodec.Gs1BinaryReader(in);
+            List<String> actual = new ArrayList<>();
+            while (reader.next())
+            {
+                actual.add(describe(reader.toResult()));
+                for (int i = 0; i < reader.size(); i++)
+                {
+                    if (reader.isPacked(i))
+                    {
+                        assertEquals(Long.parseLong(reader.getElement(i, new Gs1Element()).getData().toString()), reader.getLong(i));
+                    }
+                }
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    // a record length that is too short or a stream cut anywhere is reported as corrupt stream,
+    // the reader never reads into the next record or past the end of the buffer
+    @Test
+    public void binaryCodecRejectsBrokenRecords() throws Exception
+    {
+        byte[] stream = binaryStream(new ArrayList<String>());
+        int record_len = stream[9];
+        assertTrue(record_len > 1 && record_len < 128);
+        for (int len = 0; len < record_len; len++)
+        {
+            byte[] temp = stream.clone();
+            temp[9] = (byte) len;
+            assertCorrupt(temp, temp.length);
+        }
+        // cuts at the end of a record leave a shorter valid stream
+        int record_end = 9;
+        for (int cut = 10; cut < stream.length; cut++)
+        {
+            if (cut > record_end)
+            {
+                int length = 0;
+                int shift = 0;
+                int temp;
+                do
+                {
+                    temp = stream[record_end++];
+                    length |= (temp & 0x7F) << shift;
+                    shift += 7;
+                }
+                while (temp < 0);
+                record_end += length;
+            }
+            if (cut != record_end)
+            {
+                assertCorrupt(stream, cut);
+            }
+        }
+
+        // random bytes give records or the exception, nothing else
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++)
+        {
+            byte[] temp = stream.clone();
+            for (int j = 0; j < 3; j++)
+            {
+                temp[9 + random.nextInt(temp.length - 9)] = (byte) random.nextInt(256);
+            }
+            try
+            {
+                Gs1BinaryCodec.Gs1BinaryReader reader = new Gs1BinaryCodec.Gs1BinaryReader(ByteBuffer.wrap(temp));
+                while (reader.next())
+                {
+                    reader.toResult();
+                }
+            }
+            catch (IllegalArgumentException e)
+            {
+                // corrupt stream
+            }
+        }
+    }
+
+    private static void assertCorrupt(byte[] stream, int length)
+    {
+        Gs1BinaryCodec.Gs1BinaryReader reader = new Gs1BinaryCodec.Gs1BinaryReader(ByteBuffer.wrap(stream, 0, length));
+        try
+        {
+            while (reader.next())
+            {
+                reader.toResult();
+            }
+            fail("broken stream of " + length + " bytes read");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    // one record per code of FIELDS pairs, the first one holds raw, numeric and fixed elements
+    private static byte[] binaryStream(List<String> results) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Gs1BinaryCodec.Gs1BinaryWriter writer = new Gs1BinaryCodec.Gs1BinaryWriter(out);
+        List<String> codes = new ArrayList<>();
+        codes.add("\u001d0109506000134352\u001d3103001234\u001d10ABC\u001d3922499");
+        for (int i = 0; i < FIELDS.length; i++)
+        {
+            codes.add("\u001d" + FIELDS[i] + "\u001d" + FIELDS[(i + 3) % FIELDS.length]);
+        }
+        for (String code : codes)
+        {
+            try
+            {
+                Gs1Result result = Gs1Decoder.decode(code);
+                writer.write(result);
+                results.add(describe(result));
+            }
+            catch (Gs1Decoder.Gs1Exception e)
+            {
+                // codes with unknown AIs are not written
+            }
+        }
+        assertTrue(writer.getRecordCount() > FIELDS.length / 2);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void frozenDictionaryRejectsNewItems()
+    {
+        Gs1DataFields.Field_List group = (Gs1DataFields.Field_List) Gs1DataFields.root.getItem("31");
+        int count = Gs1DataFields.root.getItemCount();
+        try
+        {
+            new Gs1DataFields.Field_Item(group, "3199", "TEST", "^3199(\\d{6})$", 6);
+            fail("item added to the frozen dictionary");
+        }
+        catch (IllegalStateException e)
+        {
+            assertEquals(count, Gs1DataFields.root.getItemCount());
+        }
+    }
+}